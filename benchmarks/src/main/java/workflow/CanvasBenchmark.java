@@ -0,0 +1,309 @@
+package workflow;
+
+// 導入 JMH 註解與圖片、集合相關類別
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CanvasBenchmark 類別：畫布各個熱點路徑的 JMH 效能基準，用來比較每次最佳化前後的差異
+ * 回報每秒次數（吞吐量）；加上 -prof gc 可同時得到每次操作配置的位元組數（gc.alloc.rate.norm）與每秒配置量
+ * 編輯操作直接呼叫 DiagramModel，不經過畫布與事件分派執行緒；只有繪製項目使用 Canvas
+ * 使用方式（在專案根目錄）：
+ * mvn -B package
+ * java --enable-preview -jar benchmarks/target/benchmarks.jar CanvasBenchmark -prof gc
+ * 以 -p shapes=1000,10000,100000,1000000 指定圖形數量，大量圖形時以 -jvmArgsAppend -Xmx4g 加大記憶體
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Djava.awt.headless=true"})
+public class CanvasBenchmark {
+    private static final int SCREEN_WIDTH = 1920; // 繪製量測使用的畫布大小
+    private static final int SCREEN_HEIGHT = 1080;
+    private static final int GROUP_SIZE = 10; // 組合/解散量測每次組合的圖形數量
+    private static final int SELECTION_SIZE = 1000; // 多重移動量測選取的圖形數量
+
+    /**
+     * 以指定數量的隨機圖形與連線建立的圖表，所有編輯項目共用
+     * 每次執行使用不同的圖形與查詢點，i 為目前是第幾次執行
+     */
+    @State(Scope.Thread)
+    public static class ModelState {
+        @Param({"1000", "10000", "100000"})
+        int shapes;
+
+        DiagramModel model;
+        List<Shape> shapeList;
+        List<Link> links;
+        Shape[] selection;
+        Point[] points; // 隨機的查詢點，大約一半落在圖形上
+        int i;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Random random = new Random(42);
+            int span = worldSpan(shapes);
+            model = new DiagramModel();
+            model.setDiagram(syntheticDiagram(shapes, random));
+            shapeList = model.getDiagram().shapes();
+            links = model.getLinks();
+            selection = shapeList.subList(0, Math.min(SELECTION_SIZE, shapeList.size())).toArray(new Shape[0]);
+            points = new Point[4096];
+            for (int k = 0; k < points.length; k++) {
+                if (k % 2 == 0) {
+                    Shape shape = shapeList.get(random.nextInt(shapeList.size()));
+                    points[k] = new Point(shape.getCenter());
+                } else {
+                    points[k] = new Point(random.nextInt(span), random.nextInt(span));
+                }
+            }
+        }
+
+        // 取得下一個查詢點
+        Point nextPoint() {
+            return points[i++ & (points.length - 1)];
+        }
+
+        // 取得下一個圖形
+        Shape nextShape() {
+            return shapeList.get(i++ % shapeList.size());
+        }
+
+        // 來回移動的位移量，圖表不會一直往同一個方向漂移
+        int nextOffset() {
+            return (i++ & 1) == 0 ? 3 : -3;
+        }
+    }
+
+    /**
+     * 新增圖形的項目會讓圖表持續變大，每一輪量測前重新建立，量測的圖表大小維持在指定數量附近
+     */
+    @State(Scope.Thread)
+    public static class GrowingModelState {
+        @Param({"1000", "10000", "100000"})
+        int shapes;
+
+        DiagramModel model;
+        Random random;
+        int span;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            random = new Random(42);
+            span = worldSpan(shapes);
+            model = new DiagramModel();
+            model.setDiagram(syntheticDiagram(shapes, random));
+        }
+    }
+
+    /**
+     * 巢狀深度為 depth 的組合，量測最深一層的圖形移動後重新計算外框的成本
+     */
+    @State(Scope.Thread)
+    public static class CompositeState {
+        @Param({"1", "8", "64"})
+        int depth;
+
+        Composite root;
+        Shape leaf;
+        int i;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            root = nestedComposite(depth);
+            leaf = deepestLeaf(root);
+        }
+    }
+
+    /**
+     * 繪製項目使用的畫布與離屏影像
+     * view 為 1:1 時以原始大小繪製左上角；為 fit-all 時縮小到整份圖表都在畫面內
+     */
+    @State(Scope.Thread)
+    public static class PaintState {
+        @Param({"1000", "10000", "100000"})
+        int shapes;
+
+        @Param({"1:1", "fit-all"})
+        String view;
+
+        Canvas canvas;
+        BufferedImage image;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            canvas = new Canvas();
+            canvas.setSize(SCREEN_WIDTH, SCREEN_HEIGHT);
+            canvas.setDiagram(syntheticDiagram(shapes, new Random(42)));
+            if ("fit-all".equals(view)) {
+                canvas.getViewport().zoomAt((double) SCREEN_WIDTH / worldSpan(shapes), 0, 0);
+            }
+            image = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            image.flush();
+        }
+    }
+
+    @Benchmark
+    public Object hitTest(ModelState state) {
+        Point p = state.nextPoint();
+        return state.model.findTopmostShapeAt(p.x, p.y, null);
+    }
+
+    @Benchmark
+    public Object closestPort(ModelState state) {
+        Point p = state.nextPoint();
+        return state.nextShape().getClosestPort(p.x, p.y);
+    }
+
+    @Benchmark
+    public void linkUpdatePorts(ModelState state) {
+        state.links.get(state.i++ % state.links.size()).updatePorts();
+    }
+
+    @Benchmark
+    public Object compositeBounds(CompositeState state) {
+        state.leaf.move((state.i++ & 1) == 0 ? 1 : -1, 0); // 讓快取失效，量測重新計算的成本
+        return state.root.getBounds();
+    }
+
+    @Benchmark
+    public void moveShape(ModelState state) {
+        state.model.moveShape(state.nextShape(), state.nextOffset(), 0);
+    }
+
+    @Benchmark
+    public void moveShapes(ModelState state) {
+        state.model.moveShapes(state.selection, state.nextOffset(), 0);
+    }
+
+    // 選取相鄰的一組圖形並組合，再選取組合後解散，圖表回到原本的內容
+    @Benchmark
+    public void groupUngroup(ModelState state) {
+        List<Shape> shapes = state.shapeList;
+        int start = (state.i++ * GROUP_SIZE) % (shapes.size() - GROUP_SIZE);
+        for (int k = 0; k < GROUP_SIZE; k++) {
+            state.model.addToSelection(shapes.get(start + k));
+        }
+        state.model.select(state.model.groupSelectedShapes());
+        state.model.ungroupSelectedComposite();
+    }
+
+    @Benchmark
+    public Object snapshotToDiagram(ModelState state) {
+        return state.model.getSnapshot().toDiagram();
+    }
+
+    @Benchmark
+    public void addShape(GrowingModelState state) {
+        state.model.addShape(new Rect(state.random.nextInt(state.span), state.random.nextInt(state.span)));
+    }
+
+    // 在一個交易中新增 100 個圖形，作為一筆復原紀錄
+    @Benchmark
+    public void addShapesInTransaction(GrowingModelState state) {
+        state.model.runInTransaction(() -> {
+            for (int k = 0; k < 100; k++) {
+                state.model.addShape(new Rect(state.random.nextInt(state.span), state.random.nextInt(state.span)));
+            }
+        });
+    }
+
+    // 將畫布完整繪製到離屏影像
+    @Benchmark
+    public void paint(PaintState state, Blackhole blackhole) {
+        Graphics2D g2d = state.image.createGraphics();
+        state.canvas.paint(g2d);
+        g2d.dispose();
+        blackhole.consume(state.image);
+    }
+
+    // 圖形分布的世界範圍：平均每個圖形約佔 150 × 150 像素
+    static int worldSpan(int n) {
+        return (int) Math.max(1000, Math.sqrt((double) n) * 150);
+    }
+
+    // 建立 n 個隨機分布的矩形與橢圓，以及 n 條隨機連線
+    static Diagram syntheticDiagram(int n, Random random) {
+        int span = worldSpan(n);
+        List<Shape> shapes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int x = random.nextInt(span);
+            int y = random.nextInt(span);
+            shapes.add(i % 2 == 0 ? new Rect(x, y) : new Oval(x, y));
+        }
+        LinkType[] types = LinkType.values();
+        List<Link> links = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int fromIndex = random.nextInt(n);
+            Shape from = shapes.get(fromIndex);
+            // 連線大多連到附近的圖形，與一般的圖表相似
+            Shape to = shapes.get((fromIndex + 1 + random.nextInt(8)) % n);
+            Point toCenter = to.getCenter();
+            Point fromCenter = from.getCenter();
+            Link link = new Link(from, from.getClosestPort(toCenter.x, toCenter.y),
+                    to, to.getClosestPort(fromCenter.x, fromCenter.y), types[i % types.length]);
+            from.addLink(link);
+            to.addLink(link);
+            links.add(link);
+        }
+        return new Diagram(shapes, links);
+    }
+
+    // 建立巢狀深度為 depth 的組合，每一層有兩個圖形與下一層的組合
+    static Composite nestedComposite(int depth) {
+        Composite root = new Composite();
+        Composite current = root;
+        for (int level = 0; level < depth; level++) {
+            current.addShape(new Rect(level * 10, 0));
+            current.addShape(new Oval(level * 10, 100));
+            if (level < depth - 1) {
+                Composite next = new Composite();
+                current.addShape(next);
+                current = next;
+            }
+        }
+        return root;
+    }
+
+    // 取得最深一層的第一個圖形
+    static Shape deepestLeaf(Composite root) {
+        Composite current = root;
+        while (true) {
+            Composite next = null;
+            for (Shape child : current.getChildShapes()) {
+                if (child instanceof Composite) {
+                    next = (Composite) child;
+                }
+            }
+            if (next == null) {
+                return current.getChildShapes().get(0);
+            }
+            current = next;
+        }
+    }
+}
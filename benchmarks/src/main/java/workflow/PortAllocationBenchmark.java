@@ -0,0 +1,117 @@
+package workflow;
+
+// 導入量測執行緒配置記憶體所需的管理介面與集合類別
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PortAllocationBenchmark 類別：量測拖曳連線很多的圖形時，移動與連線更新是否產生垃圾物件
+ * 與畫布拖曳時執行的程式相同：每一步呼叫 DiagramModel.moveShapes，整個量測是同一次拖曳（中間不呼叫 markBoundary）
+ * 以 com.sun.management.ThreadMXBean 取得目前執行緒累計配置的位元組數，計算每一步的配置量
+ * 移動與連線更新本身不配置物件；圖形跨越空間索引的格子時會配置格子的鍵與列表，平均每步數十位元組，與連線數量無關
+ * 與連線數量成正比的配置（每條連線一個物件）在預設的 1000 條連線下每步至少 16 KB，所以以 MAX_BYTES_PER_STEP 作為門檻
+ * 使用方式：java --enable-preview -cp benchmarks/target/benchmarks.jar workflow.PortAllocationBenchmark [連線數量] [量測步數]
+ * 任一情境每步配置量超過門檻時以狀態碼 1 結束，方便在建置腳本中當作檢查
+ */
+class PortAllocationBenchmark {
+    private static final int WARMUP_STEPS = 50_000; // 暖機步數，讓 JIT 完成編譯
+    private static final double MAX_BYTES_PER_STEP = 256; // 每步平均配置量的上限
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean(); // 不支援時為 null
+
+    public static void main(String[] args) {
+        if (THREADS == null) {
+            System.err.println("thread allocation counters are not supported by this JVM");
+            System.exit(2);
+        }
+        int linkCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000; // 中心圖形的連線數量
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 10_000; // 量測的拖曳步數
+
+        List<Shape> shapes = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+
+        // 情境一：一個矩形連到 linkCount 個周圍的矩形與橢圓
+        Rect hub = new Rect(0, 0);
+        shapes.add(hub);
+        connectToRing(hub, linkCount, 0, shapes, links);
+
+        // 情境二：包含巢狀組合的組合圖形，連線分別接在組合本身與其子圖形上
+        Composite group = new Composite();
+        Composite inner = new Composite();
+        for (int i = 0; i < 4; i++) {
+            inner.addShape(new Oval(10_000 + i * 120, 200));
+        }
+        for (int i = 0; i < 4; i++) {
+            group.addShape(new Rect(10_000 + i * 120, 0));
+        }
+        group.addShape(inner);
+        shapes.add(group);
+        connectToRing(group, linkCount / 2, 10_000, shapes, links);
+        connectToRing(group.getChildShapes().get(0), linkCount / 2, 10_000, shapes, links);
+
+        DiagramModel model = new DiagramModel();
+        model.setDiagram(new Diagram(shapes, links));
+
+        boolean withinBudget = true;
+        withinBudget &= report("Rect hub", model, new Shape[]{hub}, steps);
+        withinBudget &= report("Composite hub", model, new Shape[]{group}, steps);
+        withinBudget &= report("Both hubs", model, new Shape[]{hub, group}, steps); // 多重選取的拖曳
+        System.exit(withinBudget ? 0 : 1);
+    }
+
+    // 建立 count 個圍繞在圖形周圍的圖形，並各以一條連線連到中心圖形
+    private static void connectToRing(Shape center, int count, int offsetX, List<Shape> shapes, List<Link> links) {
+        LinkType[] types = LinkType.values();
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            int x = offsetX + (int) (2000 * Math.cos(angle));
+            int y = (int) (2000 * Math.sin(angle));
+            Shape other = i % 2 == 0 ? new Rect(x, y) : new Oval(x, y);
+            Link link = new Link(center, center.getClosestPort(x, y), other, other.getClosestPort(offsetX, 0),
+                    types[i % types.length]);
+            center.addLink(link);
+            other.addLink(link);
+            shapes.add(other);
+            links.add(link);
+        }
+    }
+
+    // 執行量測並輸出結果，回傳每步配置量是否在門檻內
+    private static boolean report(String name, DiagramModel model, Shape[] dragged, int steps) {
+        model.markBoundary(); // 每個情境是新的一次拖曳
+        run(model, dragged, WARMUP_STEPS);
+        long overhead = allocatedDuring(model, null, 0); // 量測本身的配置量，從結果中扣除
+        long bytes = allocatedDuring(model, dragged, steps) - overhead;
+        int linkCount = model.collectLinks(dragged).size();
+        System.out.printf("%-14s links=%d steps=%d allocated=%d bytes (%.3f bytes/step)%n",
+                name, linkCount, steps, bytes, (double) bytes / steps);
+        return (double) bytes / steps <= MAX_BYTES_PER_STEP;
+    }
+
+    // 計算執行指定步數期間目前執行緒配置的位元組數
+    private static long allocatedDuring(DiagramModel model, Shape[] dragged, int steps) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        if (dragged != null) {
+            run(model, dragged, steps);
+        }
+        return THREADS.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    // 來回拖曳圖形，避免圖形一路移出座標範圍；每次傳入同一個陣列，與畫布拖曳時相同
+    private static void run(DiagramModel model, Shape[] dragged, int steps) {
+        for (int i = 0; i < steps; i++) {
+            int direction = (i / 100) % 2 == 0 ? 1 : -1;
+            model.moveShapes(dragged, direction, direction);
+        }
+    }
+
+    // 取得可以查詢執行緒配置量的管理介面，JVM 不支援時返回 null
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,165 @@
+package workflow;
+
+// 導入圖片輸出、檔案與並行處理相關類別
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+
+/**
+ * BatchRenderer 類別：不開視窗，把一個目錄中的所有圖表檔輸出成 PNG，供建置機器使用
+ * 使用方式：java --enable-preview -Djava.awt.headless=true -cp core/target/classes workflow.BatchRenderer 輸入目錄 輸出目錄 [執行緒數量]
+ * 副檔名 .json 的檔案以 DiagramJson 讀取，.owfd 的檔案以 DiagramFile 讀取，其他檔案略過
+ * 以固定數量的執行緒平行處理；工作佇列有上限，佇列滿時由送出工作的執行緒自己處理，
+ * 大量檔案也不會一次把所有工作排進記憶體
+ * 每個檔案完成時輸出讀取、繪製、寫檔各自花費的時間；任一檔案失敗時以狀態碼 1 結束
+ */
+class BatchRenderer {
+    private static final int MAX_DIMENSION = 8192; // 輸出圖片的最大邊長，圖表更大時縮小輸出
+    private static final int MARGIN = 10; // 圖片四周的留白
+
+    // 單一檔案的處理結果與各階段耗時（毫秒）
+    private record Result(Path input, Path output, double loadMs, double renderMs, double writeMs, Exception error) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true"); // 必須在使用任何 AWT 類別之前設定
+        if (args.length < 2) {
+            System.err.println("usage: BatchRenderer <input dir> <output dir> [threads]");
+            System.exit(2);
+        }
+        Path inputDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(outputDir);
+
+        long start = System.nanoTime();
+        List<Result> results = renderDirectory(inputDir, outputDir, threads);
+        double totalMs = (System.nanoTime() - start) / 1e6;
+
+        int failures = 0;
+        for (Result result : results) {
+            if (result.error() != null) {
+                failures++;
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d files, %d failed, %d threads, %.1f ms total%n",
+                results.size(), failures, threads, totalMs);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * 平行輸出目錄中的所有圖表檔
+     * @param inputDir 圖表檔所在的目錄
+     * @param outputDir 輸出 PNG 的目錄
+     * @param threads 執行緒數量
+     * @return 每個檔案的處理結果，順序與目錄列出的順序相同
+     */
+    static List<Result> renderDirectory(Path inputDir, Path outputDir, int threads) throws IOException, InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        List<Future<Result>> futures = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(inputDir, "*.{json,owfd}")) {
+            for (Path file : files) {
+                Path output = outputDir.resolve(stripExtension(file.getFileName().toString()) + ".png");
+                futures.add(pool.submit(() -> report(renderFile(file, output))));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        List<Result> results = new ArrayList<>(futures.size());
+        for (Future<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause()); // renderFile 已攔截所有例外，不應發生
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 讀取一個圖表檔並輸出成 PNG
+     * @param input 圖表檔
+     * @param output 輸出的 PNG 檔
+     * @return 處理結果；失敗時 error 不為 null
+     */
+    static Result renderFile(Path input, Path output) {
+        long t0 = System.nanoTime();
+        long t1 = t0;
+        long t2 = t0;
+        try {
+            Diagram diagram = input.getFileName().toString().endsWith(".json")
+                    ? DiagramJson.read(input)
+                    : DiagramFile.read(input);
+            t1 = System.nanoTime();
+            BufferedImage image = render(new DiagramPainter(diagram));
+            t2 = System.nanoTime();
+            ImageIO.write(image, "png", output.toFile());
+            long t3 = System.nanoTime();
+            return new Result(input, output, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, null);
+        } catch (Exception | OutOfMemoryError e) {
+            Exception error = e instanceof Exception ? (Exception) e : new IOException(e);
+            return new Result(input, output, (t1 - t0) / 1e6, (t2 - t1) / 1e6, 0, error);
+        }
+    }
+
+    /**
+     * 將整份圖表繪製成一張圖片，圖表太大時等比例縮小並依縮放倍率選擇細節層級
+     * @param painter 圖表繪製器
+     * @return 白色背景的圖片
+     */
+    static BufferedImage render(DiagramPainter painter) {
+        Rectangle bounds = painter.getBounds();
+        bounds.grow(MARGIN, MARGIN);
+        double scale = Math.min(1.0, (double) MAX_DIMENSION / Math.max(bounds.width, bounds.height));
+        int width = Math.max(1, (int) Math.ceil(bounds.width * scale));
+        int height = Math.max(1, (int) Math.ceil(bounds.height * scale));
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        AffineTransform transform = AffineTransform.getScaleInstance(scale, scale);
+        transform.translate(-bounds.x, -bounds.y);
+        g2d.transform(transform);
+        DetailLevel.setLabelScale(g2d, scale); // 縮小後太小的標籤文字不繪製
+        painter.paint(g2d, null, DetailLevel.forScale(scale));
+        g2d.dispose();
+        return image;
+    }
+
+    // 輸出單一檔案的處理結果
+    private static Result report(Result result) {
+        if (result.error() != null) {
+            System.err.printf(Locale.ROOT, "FAILED %s: %s%n", result.input(), result.error());
+        } else {
+            System.out.printf(Locale.ROOT, "%s -> %s  load %.1f ms  render %.1f ms  write %.1f ms%n",
+                    result.input().getFileName(), result.output().getFileName(),
+                    result.loadMs(), result.renderMs(), result.writeMs());
+        }
+        return result;
+    }
+
+    // 去掉檔名的副檔名
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,279 @@
+package workflow;
+
+// 引入必要的 Java AWT 和集合類別
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Composite 類別實現組合模式，可以包含多個 Shape 物件
+class Composite extends Shape {
+    // 儲存所有子圖形的列表
+    private List<Shape> childShapes = new ArrayList<>();
+
+    // 快取所有子圖形的連接點座標，避免每次尋找最近連接點時遞迴建立列表
+    private int[] portXs = new int[0];
+    private int[] portYs = new int[0];
+    private int portCount = 0;
+    private boolean portsValid = false; // 快取是否有效
+
+    // 快取組合的邊界與繪製範圍，子圖形移動時透過父節點指標通知失效
+    private final Rectangle cachedBounds = new Rectangle();
+    private boolean boundsValid = false;
+    private final Rectangle cachedPaintBounds = new Rectangle();
+    private boolean paintBoundsValid = false;
+
+    // 建構子：初始化一個空的組合物件
+    public Composite() {
+        super(0, 0, 0); // 呼叫父類別建構子，但組合物件本身不需要位置和深度值
+    }
+
+    // 新增一個圖形到組合中
+    public void addShape(Shape shape) {
+        childShapes.add(shape);
+        shape.setParent(this); // 記錄父節點，子圖形移動時才能通知本組合
+        invalidateCaches(); // 子圖形改變，所有快取失效
+        invalidateAncestors();
+    }
+
+    // 從組合中移除指定的圖形
+    public void removeShape(Shape shape) {
+        if (childShapes.remove(shape) && shape.getParent() == this) {
+            shape.setParent(null);
+        }
+        invalidateCaches(); // 子圖形改變，所有快取失效
+        invalidateAncestors();
+    }
+
+    /**
+     * 讓所有快取失效
+     * @return 呼叫前是否還有有效的快取；若原本就全部失效，上層組合也必定已失效，可以停止往上傳遞
+     */
+    boolean invalidateCaches() {
+        boolean wasValid = boundsValid || paintBoundsValid || portsValid;
+        boundsValid = false;
+        paintBoundsValid = false;
+        portsValid = false;
+        return wasValid;
+    }
+
+    // 取得所有子圖形的列表
+    public List<Shape> getChildShapes() {
+        return childShapes;
+    }
+
+    // 覆寫選取狀態設定方法
+    @Override
+    public void setSelected(boolean selected) {
+        // 先設定組合本身的選取狀態
+        super.setSelected(selected);
+        
+        // 將選取狀態同步到所有子圖形
+        // 當群組的選取狀態改變時，確保組合中的所有圖形都具有相同的選取狀態
+        for (Shape shape : childShapes) {
+            shape.setSelected(selected);
+        }
+    }
+
+    // 覆寫繪製方法
+    @Override
+    public void draw(Graphics g, boolean isSelected) {
+        draw(g, isSelected, DetailLevel.FULL);
+    }
+
+    // 依細節層級繪製所有子圖形
+    @Override
+    public void draw(Graphics g, boolean isSelected, DetailLevel level) {
+        // 先設定組合的選取狀態
+        setSelected(isSelected);
+        
+        // 依序繪製每個子圖形
+        // 更新所有子物件的選取狀態，然後繪製
+        for (Shape shape : childShapes) {
+            shape.setSelected(isSelected);  // 更新子物件的選取狀態
+            shape.draw(g, isSelected, level); // 繪製子圖形
+        }
+    }
+
+    // 檢查滑鼠座標是否在組合內的任何圖形範圍內
+    @Override
+    public boolean contains(int mouseX, int mouseY) {
+        for (Shape shape : childShapes) {
+            // 如果滑鼠座標在任何一個子圖形內
+            if (shape.contains(mouseX, mouseY)) {
+                return true;
+            }
+        }
+        return false; // 如果都不在任何子圖形內，回傳 false
+    }
+
+    // 重建連接點快取：依序收集所有子圖形（含巢狀組合）的連接點座標
+    private void ensurePorts() {
+        if (portsValid) {
+            return;
+        }
+        int count = 0;
+        for (Shape shape : childShapes) {
+            count += shape.getPortCount();
+        }
+        if (portXs.length != count) {
+            portXs = new int[count];
+            portYs = new int[count];
+        }
+        int i = 0;
+        for (Shape shape : childShapes) {
+            for (int p = 0; p < shape.getPortCount(); p++) {
+                portXs[i] = shape.getPortX(p);
+                portYs[i] = shape.getPortY(p);
+                i++;
+            }
+        }
+        portCount = count;
+        portsValid = true;
+    }
+
+    // 取得組合中所有圖形的連接點數量
+    @Override
+    public int getPortCount() {
+        ensurePorts();
+        return portCount;
+    }
+
+    // 從快取取得連接點的 X 座標
+    @Override
+    public int getPortX(int index) {
+        ensurePorts();
+        return portXs[index];
+    }
+
+    // 從快取取得連接點的 Y 座標
+    @Override
+    public int getPortY(int index) {
+        ensurePorts();
+        return portYs[index];
+    }
+
+    // 直接在快取陣列上尋找最近的連接點，不建立任何物件
+    @Override
+    public int getClosestPortIndex(int mouseX, int mouseY) {
+        ensurePorts();
+        int closestIndex = -1;
+        long minDistance = Long.MAX_VALUE;
+        for (int i = 0; i < portCount; i++) {
+            long dx = portXs[i] - mouseX;
+            long dy = portYs[i] - mouseY;
+            long distance = dx * dx + dy * dy;
+            if (distance < minDistance) {
+                minDistance = distance;
+                closestIndex = i;
+            }
+        }
+        return closestIndex;
+    }
+
+    // 重新計算邊界快取：合併所有子圖形的邊界
+    private void ensureBounds() {
+        if (boundsValid) {
+            return;
+        }
+        // 如果組合是空的，使用空矩形
+        if (childShapes.isEmpty()) {
+            cachedBounds.setBounds(0, 0, 0, 0);
+        } else {
+            // 以第一個子圖形的邊界作為初始值，再合併剩餘子圖形的邊界
+            cachedBounds.setBounds(childShapes.get(0).getBounds());
+            for (int i = 1; i < childShapes.size(); i++) {
+                cachedBounds.add(childShapes.get(i).getBounds());
+            }
+        }
+        boundsValid = true;
+    }
+
+    // 取得組合的邊界範圍（回傳快取的複本，呼叫端可自由修改）
+    @Override
+    public Rectangle getBounds() {
+        ensureBounds();
+        return new Rectangle(cachedBounds);
+    }
+
+    // 計算組合的繪製範圍：合併所有子圖形的繪製範圍（組合本身不繪製標籤）
+    @Override
+    public Rectangle getPaintBounds() {
+        ensurePaintBounds();
+        return new Rectangle(cachedPaintBounds);
+    }
+
+    // 將快取的繪製範圍合併到指定矩形，不建立新物件
+    @Override
+    public void addPaintBoundsTo(Rectangle rect) {
+        ensurePaintBounds();
+        rect.add(cachedPaintBounds);
+    }
+
+    // 重新計算繪製範圍快取
+    private void ensurePaintBounds() {
+        if (!paintBoundsValid) {
+            if (childShapes.isEmpty()) {
+                cachedPaintBounds.setBounds(0, 0, 0, 0);
+            } else {
+                cachedPaintBounds.setBounds(childShapes.get(0).getPaintBounds());
+                for (int i = 1; i < childShapes.size(); i++) {
+                    cachedPaintBounds.add(childShapes.get(i).getPaintBounds());
+                }
+            }
+            paintBoundsValid = true;
+        }
+    }
+
+    // 取得組合的中心點：組合本身的 x, y 不使用，以邊界計算
+    @Override
+    public Point getCenter() {
+        ensureBounds();
+        return new Point(cachedBounds.x + cachedBounds.width / 2, cachedBounds.y + cachedBounds.height / 2);
+    }
+
+    @Override
+    public void move(int dx, int dy) {
+        // 整個組合一起平移時，快取只需要跟著平移，不必重新計算
+        // 子圖形移動時會讓本組合的快取失效，所以先記下原本的狀態
+        boolean hadBounds = boundsValid;
+        boolean hadPaintBounds = paintBoundsValid;
+        boolean hadPorts = portsValid;
+        if (hadPorts) {
+            for (int i = 0; i < portCount; i++) {
+                portXs[i] += dx;
+                portYs[i] += dy;
+            }
+        }
+        // 遍歷所有子圖形（使用索引走訪，拖曳時不建立走訪器物件）
+        for (int i = 0; i < childShapes.size(); i++) {
+            Shape shape = childShapes.get(i);
+            // 移動每個子圖形（相關連線由呼叫端統一更新）
+            shape.move(dx, dy);
+        }
+        // 子圖形移動後本組合的快取已被標記失效，恢復平移後的連接點快取
+        portsValid = hadPorts;
+        // 恢復平移後的邊界快取
+        if (hadBounds) {
+            cachedBounds.translate(dx, dy);
+            boundsValid = true;
+        }
+        if (hadPaintBounds) {
+            cachedPaintBounds.translate(dx, dy);
+            paintBoundsValid = true;
+        }
+    }
+
+    // 取得組合的寬度
+    @Override
+    public int getWidth() {
+        ensureBounds();
+        return cachedBounds.width; // 回傳邊界的寬度
+    }
+
+    // 取得組合的高度
+    @Override
+    public int getHeight() {
+        ensureBounds();
+        return cachedBounds.height; // 回傳邊界的高度
+    }
+}
@@ -0,0 +1,100 @@
+package workflow;
+
+// 導入必要的 Java AWT 類別
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+/**
+ * DetailLevel 列舉：繪製的細節層級，依元素在螢幕上的大小以及可見元素的密度決定
+ * 縮得很小時，連接埠方塊、標籤文字與箭頭在螢幕上只剩一兩個像素，繪製它們只是浪費時間；
+ * 檢視區內的元素非常多時，即使每個都還看得清楚，完整繪製的成本也會讓畫面更新不穩定
+ * FULL：完整繪製
+ * REDUCED：圖形只畫本體，選取時以外框取代連接埠方塊，標籤只畫背景不畫文字，連線不畫箭頭
+ * MINIMAL：圖形一律畫成實心方塊，連線由畫布合併成一條折線一次繪製
+ * 標籤文字另外依每個圖形投影到螢幕上的字型大小決定：字太小時即使在 FULL 層級也只畫背景
+ */
+enum DetailLevel {
+    FULL,
+    REDUCED,
+    MINIMAL;
+
+    private static final int MIN_READABLE_TEXT = 6; // 文字在螢幕上小於這個像素高度就無法辨識
+    private static final int STANDARD_SHAPE_HEIGHT = 50; // 矩形與橢圓的高度
+    private static final int MIN_DETAIL_PIXELS = 25; // 圖形在螢幕上小於這個像素高度時，連接埠與箭頭已看不清楚
+    private static final int MIN_SHAPE_PIXELS = 8; // 圖形在螢幕上小於這個像素高度就看不出形狀
+    private static final int DENSE_ELEMENTS = 5_000; // 可見的圖形與連線超過這個數量時降為 REDUCED
+    private static final int VERY_DENSE_ELEMENTS = 50_000; // 超過這個數量時降為 MINIMAL
+
+    // 繪圖環境的提示：世界座標一個單位在螢幕上的像素數，用於判斷每個標籤投影後的字型大小
+    private static final RenderingHints.Key SCALE_KEY = new RenderingHints.Key(0) {
+        @Override
+        public boolean isCompatibleValue(Object value) {
+            return value instanceof Double;
+        }
+    };
+
+    /**
+     * 依縮放倍率（圖形投影到螢幕上的大小）選擇細節層級
+     * @param scale 檢視區的縮放倍率
+     * @return 細節層級
+     */
+    static DetailLevel forScale(double scale) {
+        double shapePixels = STANDARD_SHAPE_HEIGHT * scale;
+        if (shapePixels >= MIN_DETAIL_PIXELS) {
+            return FULL;
+        }
+        if (shapePixels >= MIN_SHAPE_PIXELS) {
+            return REDUCED;
+        }
+        return MINIMAL;
+    }
+
+    /**
+     * 依可見元素的數量選擇細節層級
+     * @param visibleElements 檢視區內的圖形與連線數量
+     * @return 細節層級
+     */
+    static DetailLevel forDensity(int visibleElements) {
+        if (visibleElements > VERY_DENSE_ELEMENTS) {
+            return MINIMAL;
+        }
+        if (visibleElements > DENSE_ELEMENTS) {
+            return REDUCED;
+        }
+        return FULL;
+    }
+
+    /**
+     * 同時考慮螢幕上的大小與密度，取兩者中較簡化的層級
+     * @param scale 檢視區的縮放倍率
+     * @param visibleElements 檢視區內的圖形與連線數量
+     * @return 細節層級
+     */
+    static DetailLevel select(double scale, int visibleElements) {
+        DetailLevel bySize = forScale(scale);
+        DetailLevel byDensity = forDensity(visibleElements);
+        return bySize.ordinal() >= byDensity.ordinal() ? bySize : byDensity;
+    }
+
+    /**
+     * 每次繪製前呼叫一次：記錄縮放倍率，之後以這個繪圖環境繪製的標籤依投影後的字型大小決定是否畫文字
+     * 沒有呼叫時標籤文字一律繪製（例如停用細節層級時）
+     * @param g2d 繪圖環境
+     * @param scale 世界座標一個單位在螢幕上的像素數
+     */
+    static void setLabelScale(Graphics2D g2d, double scale) {
+        g2d.setRenderingHint(SCALE_KEY, scale);
+    }
+
+    /**
+     * 檢查指定大小的文字投影到螢幕上是否還能辨識
+     * @param g 繪圖環境
+     * @param fontSize 字型大小（世界座標）
+     * @return 是否需要繪製文字
+     */
+    static boolean isTextReadable(Graphics g, int fontSize) {
+        return !(g instanceof Graphics2D g2d) || !(g2d.getRenderingHint(SCALE_KEY) instanceof Double scale)
+                || fontSize * scale >= MIN_READABLE_TEXT;
+    }
+}
@@ -0,0 +1,12 @@
+package workflow;
+
+// 導入必要的集合類別
+import java.util.List;
+
+/**
+ * Diagram 記錄：一份圖表的完整內容，用於存檔與讀檔
+ * @param shapes 畫布上的頂層圖形，依繪製順序（下層在前）；組合內的子圖形由組合本身保存
+ * @param links 所有連線，端點可以是頂層圖形或組合內的子圖形
+ */
+record Diagram(List<Shape> shapes, List<Link> links) {
+}
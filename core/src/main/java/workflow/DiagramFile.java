@@ -0,0 +1,281 @@
+package workflow;
+
+// 導入檔案讀寫與集合類別
+import java.awt.Color;
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DiagramFile 類別：圖表的二進位存檔格式
+ * 所有數值都是 big-endian，格式如下：
+ *   檔頭：int 魔術數字 "OWFD"、short 版本
+ *   字串表：int 數量，每個字串為 int 位元組長度 + UTF-8 位元組；標籤文字只存一次，圖形以編號參照
+ *   圖形：int 總數（含組合內的子圖形）、int 頂層數量，之後依前序走訪逐一寫出
+ *     byte 類型、int 深度、int 標籤文字編號、int 字型大小、int 標籤顏色（ARGB）、byte 標籤形狀，
+ *     矩形與橢圓接著是 int x、int y；組合接著是 int 子圖形數量，子圖形緊接在後
+ *   連線：int 數量，每條為 int 起點圖形編號、int 起點 x、int 起點 y、int 終點圖形編號、int 終點 x、int 終點 y、byte 類型
+ *     圖形編號就是圖形在前序走訪中的位置
+ * 讀檔時以 FileChannel.map 將整個檔案對應到記憶體，直接從緩衝區解碼，不經過串流與額外複製
+ */
+final class DiagramFile {
+    private static final int MAGIC = 0x4F574644; // "OWFD"
+    private static final short VERSION = 1; // 目前的格式版本
+
+    // 圖形類型代碼
+    private static final byte TYPE_RECT = 0;
+    private static final byte TYPE_OVAL = 1;
+    private static final byte TYPE_COMPOSITE = 2;
+    private static final int MAX_NESTING = 1000; // 組合最多的巢狀層數，超過時視為檔案損毀，避免遞迴讀取造成堆疊溢位
+
+    private DiagramFile() {
+        // 只提供靜態方法
+    }
+
+    /**
+     * 將圖表寫入檔案，檔案已存在時覆寫
+     * @param diagram 要儲存的圖表
+     * @param path 檔案路徑
+     * @throws IOException 寫入失敗，或圖表含有無法儲存的圖形類型
+     */
+    static void write(Diagram diagram, Path path) throws IOException {
+        // 第一遍：依前序走訪為每個圖形編號，同時建立字串表
+        Map<Shape, Integer> shapeIndex = new IdentityHashMap<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Shape shape : diagram.shapes()) {
+            collect(shape, shapeIndex, stringIndex, strings);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            // 字串表
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            // 圖形
+            out.writeInt(shapeIndex.size());
+            out.writeInt(diagram.shapes().size());
+            for (Shape shape : diagram.shapes()) {
+                writeShape(out, shape, stringIndex);
+            }
+
+            // 連線
+            out.writeInt(diagram.links().size());
+            for (Link link : diagram.links()) {
+                Integer start = shapeIndex.get(link.getStartShape());
+                Integer end = shapeIndex.get(link.getEndShape());
+                if (start == null || end == null) {
+                    throw new IOException("link endpoint is not part of the diagram");
+                }
+                out.writeInt(start);
+                out.writeInt(link.getStartPort().x);
+                out.writeInt(link.getStartPort().y);
+                out.writeInt(end);
+                out.writeInt(link.getEndPort().x);
+                out.writeInt(link.getEndPort().y);
+                out.writeByte(link.getType().ordinal());
+            }
+        }
+    }
+
+    // 遞迴為圖形及其子圖形編號，並把標籤文字加入字串表
+    private static void collect(Shape shape, Map<Shape, Integer> shapeIndex,
+                                Map<String, Integer> stringIndex, List<String> strings) {
+        shapeIndex.put(shape, shapeIndex.size());
+        String text = shape.getLabelText() == null ? "" : shape.getLabelText();
+        if (!stringIndex.containsKey(text)) {
+            stringIndex.put(text, strings.size());
+            strings.add(text);
+        }
+        if (shape instanceof Composite) {
+            for (Shape child : ((Composite) shape).getChildShapes()) {
+                collect(child, shapeIndex, stringIndex, strings);
+            }
+        }
+    }
+
+    // 寫出一個圖形，組合會接著遞迴寫出所有子圖形
+    private static void writeShape(DataOutputStream out, Shape shape, Map<String, Integer> stringIndex) throws IOException {
+        byte type;
+        if (shape instanceof Rect) {
+            type = TYPE_RECT;
+        } else if (shape instanceof Oval) {
+            type = TYPE_OVAL;
+        } else if (shape instanceof Composite) {
+            type = TYPE_COMPOSITE;
+        } else {
+            throw new IOException("unsupported shape type: " + shape.getClass().getName());
+        }
+        out.writeByte(type);
+        out.writeInt(shape.getDepth());
+        out.writeInt(stringIndex.get(shape.getLabelText() == null ? "" : shape.getLabelText()));
+        out.writeInt(shape.getFontSize());
+        out.writeInt(shape.getLabelColor().getRGB());
+        out.writeByte(shape.isRectLabel() ? 1 : 0);
+        if (type == TYPE_COMPOSITE) {
+            List<Shape> children = ((Composite) shape).getChildShapes();
+            out.writeInt(children.size());
+            for (Shape child : children) {
+                writeShape(out, child, stringIndex);
+            }
+        } else {
+            out.writeInt(shape.x);
+            out.writeInt(shape.y);
+        }
+    }
+
+    /**
+     * 從檔案讀取圖表
+     * @param path 檔案路徑
+     * @return 讀取到的圖表
+     * @throws IOException 讀取失敗、檔案不是這個格式或內容已損毀
+     */
+    static Diagram read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("diagram file too large: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return decode(buffer);
+        }
+    }
+
+    // 從緩衝區解碼整份圖表
+    private static Diagram decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a diagram file");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported diagram file version: " + version);
+            }
+
+            // 字串表
+            String[] strings = new String[checkCount(buffer.getInt(), buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[checkCount(buffer.getInt(), buffer)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            // 圖形：依前序走訪的順序放進陣列，連線以位置參照
+            Shape[] allShapes = new Shape[checkCount(buffer.getInt(), buffer)];
+            int topLevelCount = checkCount(buffer.getInt(), buffer);
+            List<Shape> shapes = new ArrayList<>(topLevelCount);
+            int[] next = {0}; // 下一個圖形的編號
+            for (int i = 0; i < topLevelCount; i++) {
+                shapes.add(readShape(buffer, strings, allShapes, next, 0));
+            }
+            if (next[0] != allShapes.length) {
+                throw new IOException("shape count mismatch");
+            }
+
+            // 連線
+            int linkCount = checkCount(buffer.getInt(), buffer);
+            List<Link> links = new ArrayList<>(linkCount);
+            LinkType[] linkTypes = LinkType.values();
+            for (int i = 0; i < linkCount; i++) {
+                Shape start = shapeAt(allShapes, buffer.getInt());
+                Point startPort = new Point(buffer.getInt(), buffer.getInt());
+                Shape end = shapeAt(allShapes, buffer.getInt());
+                Point endPort = new Point(buffer.getInt(), buffer.getInt());
+                int type = buffer.get();
+                if (type < 0 || type >= linkTypes.length) {
+                    throw new IOException("unknown link type: " + type);
+                }
+                Link link = new Link(start, startPort, end, endPort, linkTypes[type]);
+                start.appendLoadedLink(link);
+                if (end != start) {
+                    end.appendLoadedLink(link);
+                }
+                links.add(link);
+            }
+            return new Diagram(shapes, links);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("diagram file is truncated", e);
+        }
+    }
+
+    // 讀取一個圖形，組合會接著遞迴讀取所有子圖形；nesting 為所在的巢狀層數（頂層為 0）
+    private static Shape readShape(ByteBuffer buffer, String[] strings, Shape[] allShapes, int[] next, int nesting)
+            throws IOException {
+        if (next[0] >= allShapes.length) {
+            throw new IOException("shape count mismatch");
+        }
+        if (nesting > MAX_NESTING) {
+            throw new IOException("composite nesting deeper than " + MAX_NESTING);
+        }
+        int index = next[0]++;
+        byte type = buffer.get();
+        int depth = buffer.getInt();
+        int textIndex = buffer.getInt();
+        if (textIndex < 0 || textIndex >= strings.length) {
+            throw new IOException("string index out of range: " + textIndex);
+        }
+        int fontSize = buffer.getInt();
+        Color labelColor = new Color(buffer.getInt(), true);
+        boolean rectLabel = buffer.get() != 0;
+
+        Shape shape;
+        switch (type) {
+            case TYPE_RECT -> shape = new Rect(buffer.getInt(), buffer.getInt());
+            case TYPE_OVAL -> shape = new Oval(buffer.getInt(), buffer.getInt());
+            case TYPE_COMPOSITE -> {
+                Composite composite = new Composite();
+                int childCount = checkCount(buffer.getInt(), buffer);
+                allShapes[index] = composite; // 先登記，子圖形的編號接在後面
+                for (int i = 0; i < childCount; i++) {
+                    composite.addShape(readShape(buffer, strings, allShapes, next, nesting + 1));
+                }
+                shape = composite;
+            }
+            default -> throw new IOException("unknown shape type: " + type);
+        }
+        shape.setDepth(depth);
+        shape.setLabelText(strings[textIndex]);
+        shape.setFontSize(fontSize);
+        shape.setLabelColor(labelColor);
+        shape.setRectLabel(rectLabel);
+        allShapes[index] = shape;
+        return shape;
+    }
+
+    // 以編號取得圖形，編號不合法時視為檔案損毀
+    private static Shape shapeAt(Shape[] allShapes, int index) throws IOException {
+        if (index < 0 || index >= allShapes.length) {
+            throw new IOException("shape index out of range: " + index);
+        }
+        return allShapes[index];
+    }
+
+    // 檢查數量欄位：不能是負數，也不能超過剩餘的位元組數（每個項目至少佔 1 位元組），避免損毀的檔案造成巨大的配置
+    private static int checkCount(int count, ByteBuffer buffer) throws IOException {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("invalid count: " + count);
+        }
+        return count;
+    }
+}
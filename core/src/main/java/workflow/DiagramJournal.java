@@ -0,0 +1,431 @@
+package workflow;
+
+// 導入必要的 Java AWT、輸入輸出與並行處理類別
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * DiagramJournal 類別：自動存檔，把每次編輯造成的改變附加到日誌檔，JVM 異常結束後可以還原
+ * 背景執行緒定期讀取模型最新的 DiagramSnapshot，與上次寫出的快照比較（共用的節點直接跳過），
+ * 把新增或修改的記錄與被移除的編號（墓碑）寫成一個框架，以一次 FileChannel 寫入附加到 journal.bin；
+ * 新增圖形、移動、連線、組合/解散、標籤修改與復原都會反映在快照上，所以都會被記錄，連續拖曳只會留下最後的位置
+ * 日誌超過檢查點的大小時寫出新的完整檢查點（checkpoint.bin）並清空日誌，還原時間因此只與圖表大小有關，與使用時間長短無關
+ *
+ * 兩個檔案使用相同的格式：
+ *   檔頭：MAGIC(int) VERSION(short)
+ *   框架：長度(int) CRC32(int) 內容；內容為 序號(long) 項目數(int) 項目...
+ *   項目：SHAPE 編號 種類 x y 深度 所屬組合 順序 標籤文字 標籤顏色 字型大小 矩形標籤
+ *         SHAPE_REMOVED 編號 / LINK 編號 起點 x y 終點 x y 類型 順序 / LINK_REMOVED 編號
+ * 檢查點只有一個框架，序號為它包含的最後一個日誌框架；還原時只套用序號更大的日誌框架，
+ * 遇到長度或 CRC 不符的框架（寫到一半就結束）即停止，前面完整的框架仍然有效
+ */
+class DiagramJournal {
+    private static final int MAGIC = 0x4F57464A; // "OWFJ"
+    private static final short VERSION = 1; // 目前的格式版本
+    private static final int HEADER_BYTES = 6;
+    private static final int FRAME_HEADER_BYTES = 8; // 長度與 CRC
+
+    // 項目種類
+    private static final byte SHAPE = 0;
+    private static final byte SHAPE_REMOVED = 1;
+    private static final byte LINK = 2;
+    private static final byte LINK_REMOVED = 3;
+
+    static final long DEFAULT_INTERVAL_MILLIS = 250; // 寫出日誌的間隔
+    private static final long MIN_COMPACT_BYTES = 1 << 20; // 日誌至少到這個大小才壓縮成檢查點
+    private static final System.Logger LOGGER = System.getLogger(DiagramJournal.class.getName());
+
+    private final Path checkpointPath;
+    private final Path journalPath;
+    private DiagramModel model;
+    private ScheduledExecutorService executor;
+    private FileChannel journal; // 附加寫入的日誌
+    private FileLock lock; // 避免兩個編輯器同時寫同一份日誌
+    private volatile Consumer<Exception> failureHandler = null; // 自動存檔因寫入失敗而停止時的通知
+
+    // 以下只在背景執行緒存取（start 之後）
+    private DiagramSnapshot written = DiagramSnapshot.EMPTY; // 已寫入日誌的版本
+    private long sequence = 0; // 最後一個框架的序號
+    private long checkpointBytes = 0; // 目前檢查點的大小
+    private boolean recovered = false; // 是否已呼叫 recover 讀取原本的檔案
+
+    /**
+     * @param directory 存放檢查點與日誌的目錄，不存在時自動建立
+     */
+    public DiagramJournal(Path directory) {
+        this.checkpointPath = directory.resolve("checkpoint.bin");
+        this.journalPath = directory.resolve("journal.bin");
+    }
+
+    // 預設的自動存檔目錄，可用系統屬性 workflow.journal.dir 指定
+    static Path defaultDirectory() {
+        String dir = System.getProperty("workflow.journal.dir");
+        return dir != null ? Path.of(dir) : Path.of(System.getProperty("user.home"), ".workflow-editor");
+    }
+
+    /**
+     * 讀取檢查點並重播之後的日誌，取得上次結束時的圖表；應在 start 之前呼叫
+     * @return 還原的圖表，沒有自動存檔時返回 null
+     * @throws IOException 讀取失敗或檢查點已損毀
+     */
+    public Diagram recover() throws IOException {
+        recovered = true;
+        List<DiagramSnapshot.ShapeRecord> shapes = new ArrayList<>();
+        List<DiagramSnapshot.LinkRecord> links = new ArrayList<>();
+        boolean found = false;
+        if (Files.exists(checkpointPath)) {
+            // 檢查點是以改名的方式整份換上的，不完整就是損毀
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+            checkHeader(buffer, checkpointPath);
+            if (!replayFrame(buffer, -1, shapes, links)) {
+                throw new IOException("damaged checkpoint: " + checkpointPath);
+            }
+            checkpointBytes = buffer.capacity();
+            found = true;
+        }
+        if (Files.exists(journalPath) && Files.size(journalPath) >= HEADER_BYTES) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+            checkHeader(buffer, journalPath);
+            long checkpointSequence = sequence;
+            while (replayFrame(buffer, checkpointSequence, shapes, links)) {
+                found = true;
+            }
+        }
+        if (!found) {
+            return null;
+        }
+
+        PersistentVector<DiagramSnapshot.ShapeRecord> shapeVector = PersistentVector.empty();
+        int shapeCount = 0;
+        for (int id = 0; id < shapes.size(); id++) {
+            shapeVector = shapeVector.set(id, shapes.get(id));
+            shapeCount += shapes.get(id) != null ? 1 : 0;
+        }
+        PersistentVector<DiagramSnapshot.LinkRecord> linkVector = PersistentVector.empty();
+        int linkCount = 0;
+        for (int id = 0; id < links.size(); id++) {
+            linkVector = linkVector.set(id, links.get(id));
+            linkCount += links.get(id) != null ? 1 : 0;
+        }
+        return new DiagramSnapshot(0, shapeVector, linkVector, shapeCount, linkCount).toDiagram();
+    }
+
+    /**
+     * 開始自動存檔：先以模型目前的內容寫出檢查點，之後定期附加改變
+     * @param model 要記錄的模型
+     * @param intervalMillis 寫出日誌的間隔（毫秒）
+     * @throws IOException 無法建立檔案，或另一個編輯器正在使用同一份日誌
+     */
+    public void start(DiagramModel model, long intervalMillis) throws IOException {
+        Files.createDirectories(journalPath.getParent());
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock = journal.tryLock();
+        if (lock == null) {
+            journal.close();
+            throw new IOException("journal is in use by another editor: " + journalPath);
+        }
+        this.model = model;
+        if (!recovered) {
+            journal.truncate(0); // 沒有還原就是要捨棄原本的內容，避免舊日誌被接到新的檢查點後面
+        }
+        written = model.getSnapshot();
+        compact();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "diagram-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止自動存檔：寫出最後的改變與新的檢查點，下次啟動時不需要重播日誌
+     * @throws IOException 寫入失敗
+     */
+    public void close() throws IOException {
+        if (journal == null || !journal.isOpen()) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+            compact();
+        } finally {
+            lock.release();
+            journal.close();
+        }
+    }
+
+    /**
+     * 設定自動存檔因寫入失敗而停止時的通知，例如讓編輯器顯示錯誤訊息；沒有設定時只記錄到 System.Logger
+     * 通知在背景執行緒呼叫，需要操作 Swing 元件時由呼叫端轉到事件分派執行緒
+     * @param handler 收到停止原因的例外，可為 null
+     */
+    public void setFailureHandler(Consumer<Exception> handler) {
+        this.failureHandler = handler;
+    }
+
+    // 背景執行緒的工作：寫入失敗時停止自動存檔並通知，不影響編輯
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "autosave stopped: " + journalPath, e);
+            executor.shutdown();
+            Consumer<Exception> handler = failureHandler;
+            if (handler != null) {
+                handler.accept(e);
+            }
+        }
+    }
+
+    /**
+     * 把上次寫出之後的改變附加到日誌，日誌太大時壓縮成檢查點
+     * @throws IOException 寫入失敗
+     */
+    synchronized void flush() throws IOException {
+        DiagramSnapshot snapshot = model.getSnapshot();
+        if (snapshot == written) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int count = writeEntries(new DataOutputStream(bytes), snapshot, written);
+        written = snapshot;
+        if (count == 0) {
+            return;
+        }
+        sequence++;
+        writeFully(journal, frame(sequence, count, bytes), journal.size());
+        if (journal.size() > Math.max(MIN_COMPACT_BYTES, checkpointBytes)) {
+            compact();
+        }
+    }
+
+    // 以已寫入的版本產生新的檢查點，換上之後清空日誌
+    private void compact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int count = writeEntries(new DataOutputStream(bytes), written, DiagramSnapshot.EMPTY);
+
+        // 先寫到暫存檔並確實寫入磁碟，再以改變名稱的方式整份換上，任何時候結束都不會留下一半的檢查點
+        Path temp = checkpointPath.resolveSibling("checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header(), 0);
+            writeFully(channel, frame(sequence, count, bytes), HEADER_BYTES);
+            channel.force(true);
+            checkpointBytes = channel.size();
+        }
+        Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // 檢查點換上後才清空日誌；兩者之間結束時，日誌中的框架序號不大於檢查點，還原時會被略過
+        journal.truncate(0);
+        writeFully(journal, header(), 0);
+        journal.force(true);
+    }
+
+    /**
+     * 寫出兩個版本之間不同的記錄
+     * @param out 輸出
+     * @param snapshot 新版本
+     * @param base 舊版本，EMPTY 表示寫出全部
+     * @return 寫出的項目數
+     */
+    private static int writeEntries(DataOutputStream out, DiagramSnapshot snapshot, DiagramSnapshot base) throws IOException {
+        int[] count = {0};
+        IOException[] failure = {null};
+        snapshot.shapeVector().diff(base.shapeVector(), (id, record) -> {
+            try {
+                writeShape(out, id, record);
+                count[0]++;
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        snapshot.linkVector().diff(base.linkVector(), (id, record) -> {
+            try {
+                writeLink(out, id, record);
+                count[0]++;
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return count[0];
+    }
+
+    // 寫出一個圖形項目，null 表示已移除
+    private static void writeShape(DataOutputStream out, int id, DiagramSnapshot.ShapeRecord record) throws IOException {
+        if (record == null) {
+            out.writeByte(SHAPE_REMOVED);
+            out.writeInt(id);
+            return;
+        }
+        out.writeByte(SHAPE);
+        out.writeInt(id);
+        out.writeByte(record.kind().ordinal());
+        out.writeInt(record.x());
+        out.writeInt(record.y());
+        out.writeInt(record.depth());
+        out.writeInt(record.parent());
+        out.writeLong(record.order());
+        byte[] text = (record.labelText() == null ? "" : record.labelText()).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+        out.writeInt(record.labelColor().getRGB());
+        out.writeInt(record.fontSize());
+        out.writeByte(record.rectLabel() ? 1 : 0);
+    }
+
+    // 寫出一個連線項目，null 表示已移除
+    private static void writeLink(DataOutputStream out, int id, DiagramSnapshot.LinkRecord record) throws IOException {
+        if (record == null) {
+            out.writeByte(LINK_REMOVED);
+            out.writeInt(id);
+            return;
+        }
+        out.writeByte(LINK);
+        out.writeInt(id);
+        out.writeInt(record.start());
+        out.writeInt(record.startX());
+        out.writeInt(record.startY());
+        out.writeInt(record.end());
+        out.writeInt(record.endX());
+        out.writeInt(record.endY());
+        out.writeByte(record.type().ordinal());
+        out.writeLong(record.order());
+    }
+
+    // 檔頭
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putShort(VERSION).flip();
+    }
+
+    // 組成框架：長度、CRC、序號、項目數、項目
+    private static ByteBuffer frame(long sequence, int count, ByteArrayOutputStream entries) {
+        int length = 12 + entries.size();
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER_BYTES + length);
+        buffer.position(FRAME_HEADER_BYTES);
+        buffer.putLong(sequence).putInt(count).put(entries.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), FRAME_HEADER_BYTES, length);
+        buffer.putInt(0, length).putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    // 從指定位置寫出整個緩衝區
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // 檢查檔頭
+    private static void checkHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("not a diagram journal: " + path);
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported diagram journal version: " + version);
+        }
+    }
+
+    /**
+     * 讀取並套用一個框架
+     * @param after 只套用序號大於這個值的框架，-1 表示全部套用
+     * @return 是否讀到完整的框架；檔案結束、長度或 CRC 不符時返回 false
+     */
+    private boolean replayFrame(ByteBuffer buffer, long after, List<DiagramSnapshot.ShapeRecord> shapes,
+                                List<DiagramSnapshot.LinkRecord> links) throws IOException {
+        if (buffer.remaining() < FRAME_HEADER_BYTES) {
+            return false;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length < 12 || length > buffer.remaining()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.position(), length);
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        ByteBuffer frame = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        long frameSequence = frame.getLong();
+        if (frameSequence <= after) {
+            return true; // 已包含在檢查點中
+        }
+        sequence = frameSequence;
+        int count = frame.getInt();
+        try {
+            DiagramSnapshot.Kind[] kinds = DiagramSnapshot.Kind.values();
+            LinkType[] linkTypes = LinkType.values();
+            for (int i = 0; i < count; i++) {
+                byte tag = frame.get();
+                int id = frame.getInt();
+                if (id < 0) {
+                    throw new IOException("negative id in journal");
+                }
+                switch (tag) {
+                    case SHAPE -> {
+                        DiagramSnapshot.Kind kind = kinds[frame.get()];
+                        int x = frame.getInt();
+                        int y = frame.getInt();
+                        int depth = frame.getInt();
+                        int parent = frame.getInt();
+                        long order = frame.getLong();
+                        byte[] text = new byte[frame.getInt()];
+                        frame.get(text);
+                        Color color = new Color(frame.getInt(), true);
+                        int fontSize = frame.getInt();
+                        boolean rectLabel = frame.get() != 0;
+                        put(shapes, id, new DiagramSnapshot.ShapeRecord(kind, x, y, depth, parent, order,
+                                new String(text, StandardCharsets.UTF_8), color, fontSize, rectLabel));
+                    }
+                    case SHAPE_REMOVED -> put(shapes, id, null);
+                    case LINK -> put(links, id, new DiagramSnapshot.LinkRecord(frame.getInt(), frame.getInt(), frame.getInt(),
+                            frame.getInt(), frame.getInt(), frame.getInt(), linkTypes[frame.get()], frame.getLong()));
+                    case LINK_REMOVED -> put(links, id, null);
+                    default -> throw new IOException("unknown journal entry: " + tag);
+                }
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("damaged journal frame " + frameSequence, e);
+        }
+        return true;
+    }
+
+    // 設定指定編號的記錄，列表不夠長時補上 null
+    private static <T> void put(List<T> list, int id, T value) {
+        while (list.size() <= id) {
+            list.add(null);
+        }
+        list.set(id, value);
+    }
+}
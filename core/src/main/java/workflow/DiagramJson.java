@@ -0,0 +1,785 @@
+package workflow;
+
+// 導入文字讀寫與集合類別
+import java.awt.Color;
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * DiagramJson 類別：圖表的 JSON 交換格式，供其他工具讀寫
+ * 格式如下（shapes 必須出現在 links 之前，讀取時才能一次走訪就接回連線兩端的圖形）：
+ * <pre>
+ * {"format":"workflow-diagram","version":1,
+ *  "shapes":[{"id":0,"type":"rect","x":10,"y":20,"depth":10,
+ *             "label":{"text":"Rect1","fontSize":12,"color":"#FFFF00","shape":"rect"}},
+ *            {"id":1,"type":"composite","depth":0,"label":{...},"children":[...]}],
+ *  "links":[{"type":"ASSOCIATION","start":0,"startPort":[60,20],"end":2,"endPort":[100,45]}]}
+ * </pre>
+ * 寫出與讀取都是逐一處理元素的串流方式，不會建立整份文件的樹狀結構，
+ * 除了圖表模型本身之外，只需要一張以 id 對應圖形的表
+ * 讀取時不認得的欄位會略過；連線沒有 startPort/endPort 時改用最接近另一端圖形中心的連接點
+ */
+final class DiagramJson {
+    private static final String FORMAT = "workflow-diagram"; // 格式名稱
+    private static final int VERSION = 1; // 目前的格式版本
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray(); // 顏色與跳脫字元使用的十六進位數字
+
+    private DiagramJson() {
+        // 只提供靜態方法
+    }
+
+    // ===== 寫出 =====
+
+    /**
+     * 將圖表寫成 JSON 檔案（UTF-8），檔案已存在時覆寫
+     * @param diagram 要儲存的圖表
+     * @param path 檔案路徑
+     */
+    static void write(Diagram diagram, Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(diagram, out);
+        }
+    }
+
+    /**
+     * 將圖表以 JSON 寫到輸出，逐一寫出每個元素，不建立中間文件
+     * @param diagram 要儲存的圖表
+     * @param out 輸出目的地，呼叫端負責關閉
+     */
+    static void write(Diagram diagram, Writer out) throws IOException {
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        // 依前序走訪為圖形編號，連線以編號參照兩端的圖形
+        Map<Shape, Integer> ids = new IdentityHashMap<>();
+        writer.write("{\"format\":\"" + FORMAT + "\",\"version\":" + VERSION + ",\n\"shapes\":[");
+        boolean first = true;
+        for (Shape shape : diagram.shapes()) {
+            if (!first) {
+                writer.write(",");
+            }
+            writer.write("\n");
+            writeShape(writer, shape, ids);
+            first = false;
+        }
+        writer.write("],\n\"links\":[");
+        first = true;
+        for (Link link : diagram.links()) {
+            Integer start = ids.get(link.getStartShape());
+            Integer end = ids.get(link.getEndShape());
+            if (start == null || end == null) {
+                throw new IOException("link endpoint is not part of the diagram");
+            }
+            writer.write(first ? "\n" : ",\n");
+            writer.write("{\"type\":\"" + link.getType().name() + "\",\"start\":" + start
+                    + ",\"startPort\":[" + link.getStartPort().x + "," + link.getStartPort().y + "]"
+                    + ",\"end\":" + end
+                    + ",\"endPort\":[" + link.getEndPort().x + "," + link.getEndPort().y + "]}");
+            first = false;
+        }
+        writer.write("]}\n");
+        writer.flush();
+    }
+
+    // 寫出一個圖形，組合會接著遞迴寫出所有子圖形
+    private static void writeShape(Writer writer, Shape shape, Map<Shape, Integer> ids) throws IOException {
+        int id = ids.size();
+        ids.put(shape, id);
+        String type;
+        if (shape instanceof Rect) {
+            type = "rect";
+        } else if (shape instanceof Oval) {
+            type = "oval";
+        } else if (shape instanceof Composite) {
+            type = "composite";
+        } else {
+            throw new IOException("unsupported shape type: " + shape.getClass().getName());
+        }
+        writer.write("{\"id\":" + id + ",\"type\":\"" + type + "\"");
+        if (!(shape instanceof Composite)) {
+            writer.write(",\"x\":" + shape.x + ",\"y\":" + shape.y);
+        }
+        writer.write(",\"depth\":" + shape.getDepth() + ",\"label\":{\"text\":");
+        writeString(writer, shape.getLabelText() == null ? "" : shape.getLabelText());
+        writer.write(",\"fontSize\":" + shape.getFontSize()
+                + ",\"color\":\"" + formatColor(shape.getLabelColor()) + "\""
+                + ",\"shape\":\"" + (shape.isRectLabel() ? "rect" : "oval") + "\"}");
+        if (shape instanceof Composite) {
+            writer.write(",\"children\":[");
+            boolean first = true;
+            for (Shape child : ((Composite) shape).getChildShapes()) {
+                if (!first) {
+                    writer.write(",");
+                }
+                writeShape(writer, child, ids);
+                first = false;
+            }
+            writer.write("]");
+        }
+        writer.write("}");
+    }
+
+    // 寫出加上引號並跳脫特殊字元的字串
+    private static void writeString(Writer writer, String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write("\\u00");
+                        writer.write(HEX_DIGITS[c >> 4]);
+                        writer.write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    // 顏色格式："#RRGGBB"，不透明度不是 255 時為 "#RRGGBBAA"
+    // 每個圖形都會呼叫，直接組出字元，不經過 String.format
+    private static String formatColor(Color color) {
+        int argb = color.getRGB();
+        int alpha = argb >>> 24;
+        int digits = alpha == 255 ? 6 : 8;
+        long value = alpha == 255 ? argb & 0xFFFFFFL : ((argb & 0xFFFFFFL) << 8) | alpha;
+        char[] chars = new char[digits + 1];
+        chars[0] = '#';
+        for (int i = digits; i >= 1; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    // 解析 "#RRGGBB" 或 "#RRGGBBAA"
+    private static Color parseColor(String s) throws IOException {
+        try {
+            if (s.length() == 7 && s.charAt(0) == '#') {
+                return new Color(Integer.parseInt(s.substring(1), 16));
+            }
+            if (s.length() == 9 && s.charAt(0) == '#') {
+                int rgb = Integer.parseInt(s.substring(1, 7), 16);
+                int alpha = Integer.parseInt(s.substring(7), 16);
+                return new Color(rgb | (alpha << 24), true);
+            }
+        } catch (NumberFormatException e) {
+            // 交給下方統一回報格式錯誤
+        }
+        throw new IOException("invalid color: " + s);
+    }
+
+    // ===== 讀取 =====
+
+    /**
+     * 從 JSON 檔案（UTF-8）讀取圖表
+     * @param path 檔案路徑
+     * @return 讀取到的圖表
+     */
+    static Diagram read(Path path) throws IOException {
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * 從輸入讀取 JSON 圖表，逐一解析元素，不建立中間文件
+     * @param in 輸入來源，呼叫端負責關閉
+     * @return 讀取到的圖表
+     * @throws IOException 讀取失敗、JSON 語法錯誤或內容不合法
+     */
+    static Diagram read(Reader in) throws IOException {
+        JsonPullReader reader = new JsonPullReader(in);
+        List<Shape> shapes = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+        ShapeTable table = new ShapeTable();
+        boolean linksSeen = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "format" -> {
+                    String format = reader.nextString();
+                    if (!FORMAT.equals(format)) {
+                        throw new IOException("not a diagram document: " + format);
+                    }
+                }
+                case "version" -> {
+                    int version = reader.nextInt();
+                    if (version > VERSION) {
+                        throw new IOException("unsupported diagram version: " + version);
+                    }
+                }
+                case "shapes" -> {
+                    if (linksSeen) {
+                        throw new IOException("\"shapes\" must appear before \"links\"");
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        shapes.add(readShape(reader, table));
+                    }
+                    reader.endArray();
+                }
+                case "links" -> {
+                    linksSeen = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        links.add(readLink(reader, table));
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        reader.endDocument();
+        return new Diagram(shapes, links);
+    }
+
+    // 讀取一個圖形物件，組合會遞迴讀取子圖形
+    private static Shape readShape(JsonPullReader reader, ShapeTable table) throws IOException {
+        int id = -1;
+        String type = null;
+        int x = 0;
+        int y = 0;
+        Integer depth = null;
+        String text = null;
+        Integer fontSize = null;
+        Color color = null;
+        Boolean rectLabel = null;
+        List<Shape> children = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextInt();
+                case "type" -> type = reader.nextString();
+                case "x" -> x = reader.nextInt();
+                case "y" -> y = reader.nextInt();
+                case "depth" -> depth = reader.nextInt();
+                case "label" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "text" -> text = reader.nextString();
+                            case "fontSize" -> fontSize = reader.nextInt();
+                            case "color" -> color = parseColor(reader.nextString());
+                            case "shape" -> rectLabel = !"oval".equals(reader.nextString());
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                case "children" -> {
+                    children = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        children.add(readShape(reader, table));
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null) {
+            throw new IOException("shape without type");
+        }
+        Shape shape;
+        switch (type) {
+            case "rect" -> shape = new Rect(x, y);
+            case "oval" -> shape = new Oval(x, y);
+            case "composite" -> {
+                Composite composite = new Composite();
+                if (children != null) {
+                    for (Shape child : children) {
+                        composite.addShape(child);
+                    }
+                }
+                shape = composite;
+            }
+            default -> throw new IOException("unknown shape type: " + type);
+        }
+        if (children != null && !(shape instanceof Composite)) {
+            throw new IOException("only composites can have children");
+        }
+        // 沒有提供的屬性保留建構子的預設值
+        if (depth != null) {
+            shape.setDepth(depth);
+        }
+        if (text != null) {
+            shape.setLabelText(text);
+        }
+        if (fontSize != null) {
+            shape.setFontSize(fontSize);
+        }
+        if (color != null) {
+            shape.setLabelColor(color);
+        }
+        if (rectLabel != null) {
+            shape.setRectLabel(rectLabel);
+        }
+        if (id >= 0) {
+            table.put(id, shape);
+        }
+        return shape;
+    }
+
+    // 讀取一條連線，兩端的圖形以 id 表查詢
+    private static Link readLink(JsonPullReader reader, ShapeTable table) throws IOException {
+        LinkType type = null;
+        Shape start = null;
+        Shape end = null;
+        Point startPort = null;
+        Point endPort = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type" -> {
+                    String name = reader.nextString();
+                    try {
+                        type = LinkType.valueOf(name.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("unknown link type: " + name);
+                    }
+                }
+                case "start" -> start = table.get(reader.nextInt());
+                case "end" -> end = table.get(reader.nextInt());
+                case "startPort" -> startPort = readPoint(reader);
+                case "endPort" -> endPort = readPoint(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null || start == null || end == null) {
+            throw new IOException("link requires type, start and end");
+        }
+        // 沒有連接點時，取最接近另一端圖形中心的連接點
+        if (startPort == null) {
+            Point center = end.getCenter();
+            startPort = start.getClosestPort(center.x, center.y);
+        }
+        if (endPort == null) {
+            Point center = start.getCenter();
+            endPort = end.getClosestPort(center.x, center.y);
+        }
+        if (startPort == null || endPort == null) {
+            throw new IOException("link endpoint has no ports");
+        }
+        Link link = new Link(start, startPort, end, endPort, type);
+        // 檔案中的每條連線只讀取一次，不必逐一檢查是否重複（與 DiagramFile 相同），連線很多的圖形載入時才不會是平方成本
+        start.appendLoadedLink(link);
+        if (end != start) {
+            end.appendLoadedLink(link);
+        }
+        return link;
+    }
+
+    // 讀取 [x, y] 形式的座標
+    private static Point readPoint(JsonPullReader reader) throws IOException {
+        reader.beginArray();
+        Point point = new Point(reader.nextInt(), reader.nextInt());
+        reader.endArray();
+        return point;
+    }
+
+    /**
+     * id 對應圖形的表；id 由檔案決定，可能很大或不連續，所以用 HashMap 而不是以 id 為索引的陣列，
+     * 記憶體用量只與實際讀到的圖形數量有關
+     */
+    private static final class ShapeTable {
+        private final Map<Integer, Shape> shapes = new HashMap<>();
+
+        void put(int id, Shape shape) throws IOException {
+            if (shapes.putIfAbsent(id, shape) != null) {
+                throw new IOException("duplicate shape id: " + id);
+            }
+        }
+
+        Shape get(int id) throws IOException {
+            Shape shape = shapes.get(id);
+            if (shape == null) {
+                throw new IOException("unknown shape id: " + id);
+            }
+            return shape;
+        }
+    }
+
+    /**
+     * 最小的 JSON 拉取式解析器：呼叫端依照預期的結構逐一取出記號，不建立樹狀結構
+     * 只保存巢狀層級的堆疊與一個字串緩衝區，記憶體用量與文件大小無關
+     */
+    private static final class JsonPullReader {
+        // 記號種類
+        private static final int NONE = 0;
+        private static final int BEGIN_OBJECT = 1;
+        private static final int END_OBJECT = 2;
+        private static final int BEGIN_ARRAY = 3;
+        private static final int END_ARRAY = 4;
+        private static final int NAME = 5;
+        private static final int STRING = 6;
+        private static final int NUMBER = 7;
+        private static final int LITERAL = 8;
+        private static final int END_DOCUMENT = 9;
+
+        // 巢狀層級的狀態
+        private static final int EMPTY_ARRAY = 1;
+        private static final int NONEMPTY_ARRAY = 2;
+        private static final int EMPTY_OBJECT = 3;
+        private static final int DANGLING_NAME = 4;
+        private static final int NONEMPTY_OBJECT = 5;
+        private static final int EMPTY_DOCUMENT = 6;
+        private static final int NONEMPTY_DOCUMENT = 7;
+
+        private static final int MAX_NESTING = 2048; // 物件與陣列最多的巢狀層數（每層組合佔兩層）
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int pos = 0;
+        private int limit = 0;
+        private long offset = 0; // 已讀入緩衝區之前的字元數，用於錯誤訊息
+        private int[] stack = new int[32];
+        private int stackSize = 0;
+        private int peeked = NONE;
+        private final StringBuilder text = new StringBuilder(); // 重複使用的字串緩衝區
+
+        JsonPullReader(Reader in) {
+            this.in = in instanceof BufferedReader ? in : new BufferedReader(in);
+            stack[stackSize++] = EMPTY_DOCUMENT;
+        }
+
+        void beginObject() throws IOException {
+            expect(BEGIN_OBJECT, "'{'");
+            push(EMPTY_OBJECT);
+        }
+
+        void endObject() throws IOException {
+            expect(END_OBJECT, "'}'");
+            stackSize--;
+        }
+
+        void beginArray() throws IOException {
+            expect(BEGIN_ARRAY, "'['");
+            push(EMPTY_ARRAY);
+        }
+
+        void endArray() throws IOException {
+            expect(END_ARRAY, "']'");
+            stackSize--;
+        }
+
+        void endDocument() throws IOException {
+            expect(END_DOCUMENT, "end of document");
+        }
+
+        // 目前的物件或陣列是否還有下一個元素
+        boolean hasNext() throws IOException {
+            int token = peek();
+            return token != END_OBJECT && token != END_ARRAY && token != END_DOCUMENT;
+        }
+
+        String nextName() throws IOException {
+            expect(NAME, "a name");
+            return readString();
+        }
+
+        String nextString() throws IOException {
+            expect(STRING, "a string");
+            return readString();
+        }
+
+        int nextInt() throws IOException {
+            expect(NUMBER, "a number");
+            String number = readNumber();
+            try {
+                return Integer.parseInt(number);
+            } catch (NumberFormatException e) {
+                // 其他工具可能寫出 12.0 或 1e3 之類的數值，只接受剛好是 int 範圍內整數的值
+                double value;
+                try {
+                    value = Double.parseDouble(number);
+                } catch (NumberFormatException e2) {
+                    throw syntaxError("invalid number: " + number);
+                }
+                if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    throw syntaxError("expected an integer: " + number);
+                }
+                return (int) value;
+            }
+        }
+
+        // 略過目前的值（包含整個巢狀的物件或陣列）
+        void skipValue() throws IOException {
+            int depth = 0;
+            do {
+                switch (peek()) {
+                    case BEGIN_OBJECT -> {
+                        beginObject();
+                        depth++;
+                    }
+                    case BEGIN_ARRAY -> {
+                        beginArray();
+                        depth++;
+                    }
+                    case END_OBJECT -> {
+                        endObject();
+                        depth--;
+                    }
+                    case END_ARRAY -> {
+                        endArray();
+                        depth--;
+                    }
+                    case NAME -> nextName();
+                    case STRING -> nextString();
+                    case NUMBER -> {
+                        peeked = NONE;
+                        readNumber();
+                    }
+                    case LITERAL -> {
+                        peeked = NONE;
+                        readLiteral();
+                    }
+                    default -> throw syntaxError("unexpected end of document");
+                }
+            } while (depth > 0);
+        }
+
+        private void expect(int token, String description) throws IOException {
+            if (peek() != token) {
+                throw syntaxError("expected " + description);
+            }
+            peeked = NONE;
+        }
+
+        private void push(int scope) throws IOException {
+            if (stackSize > MAX_NESTING) {
+                // 組合的子圖形以遞迴讀取，限制巢狀層數，損毀的檔案才不會造成堆疊溢位
+                throw syntaxError("nesting deeper than " + MAX_NESTING);
+            }
+            if (stackSize == stack.length) {
+                stack = Arrays.copyOf(stack, stackSize * 2);
+            }
+            stack[stackSize++] = scope;
+        }
+
+        // 取得下一個記號的種類，並處理中間的逗號與冒號
+        private int peek() throws IOException {
+            if (peeked != NONE) {
+                return peeked;
+            }
+            int scope = stack[stackSize - 1];
+            int c;
+            switch (scope) {
+                case EMPTY_ARRAY -> {
+                    stack[stackSize - 1] = NONEMPTY_ARRAY;
+                    c = nextNonWhitespace();
+                    if (c == ']') {
+                        return peeked = END_ARRAY;
+                    }
+                    pos--;
+                }
+                case NONEMPTY_ARRAY -> {
+                    c = nextNonWhitespace();
+                    if (c == ']') {
+                        return peeked = END_ARRAY;
+                    }
+                    if (c != ',') {
+                        throw syntaxError("expected ',' or ']'");
+                    }
+                }
+                case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                    c = nextNonWhitespace();
+                    if (c == '}') {
+                        return peeked = END_OBJECT;
+                    }
+                    if (scope == NONEMPTY_OBJECT) {
+                        if (c != ',') {
+                            throw syntaxError("expected ',' or '}'");
+                        }
+                        c = nextNonWhitespace();
+                    }
+                    if (c != '"') {
+                        throw syntaxError("expected a name");
+                    }
+                    stack[stackSize - 1] = DANGLING_NAME;
+                    return peeked = NAME;
+                }
+                case DANGLING_NAME -> {
+                    stack[stackSize - 1] = NONEMPTY_OBJECT;
+                    if (nextNonWhitespace() != ':') {
+                        throw syntaxError("expected ':'");
+                    }
+                }
+                case EMPTY_DOCUMENT -> stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                case NONEMPTY_DOCUMENT -> {
+                    if (nextNonWhitespaceOrEnd() != -1) {
+                        throw syntaxError("unexpected data after document");
+                    }
+                    return peeked = END_DOCUMENT;
+                }
+                default -> throw new IllegalStateException();
+            }
+
+            c = nextNonWhitespace();
+            switch (c) {
+                case '{' -> peeked = BEGIN_OBJECT;
+                case '[' -> peeked = BEGIN_ARRAY;
+                case '"' -> peeked = STRING;
+                case 't', 'f', 'n' -> {
+                    pos--;
+                    peeked = LITERAL;
+                }
+                default -> {
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        pos--;
+                        peeked = NUMBER;
+                    } else {
+                        throw syntaxError("unexpected character '" + (char) c + "'");
+                    }
+                }
+            }
+            return peeked;
+        }
+
+        // 讀取字串內容（開頭的引號已讀取），處理跳脫字元
+        private String readString() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c = nextChar();
+                if (c == '"') {
+                    return text.toString();
+                }
+                if (c == '\\') {
+                    int escaped = nextChar();
+                    switch (escaped) {
+                        case 'n' -> text.append('\n');
+                        case 'r' -> text.append('\r');
+                        case 't' -> text.append('\t');
+                        case 'b' -> text.append('\b');
+                        case 'f' -> text.append('\f');
+                        case 'u' -> {
+                            int value = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(nextChar(), 16);
+                                if (digit < 0) {
+                                    throw syntaxError("invalid unicode escape");
+                                }
+                                value = value * 16 + digit;
+                            }
+                            text.append((char) value);
+                        }
+                        case '"', '\\', '/' -> text.append((char) escaped);
+                        default -> throw syntaxError("invalid escape");
+                    }
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        // 讀取數值的字元
+        private String readNumber() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c = nextCharOrEnd();
+                if (c == -1) {
+                    break;
+                }
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                    text.append((char) c);
+                } else {
+                    pos--;
+                    break;
+                }
+            }
+            return text.toString();
+        }
+
+        // 讀取 true、false 或 null
+        private void readLiteral() throws IOException {
+            text.setLength(0);
+            while (true) {
+                int c = nextCharOrEnd();
+                if (c >= 'a' && c <= 'z') {
+                    text.append((char) c);
+                } else {
+                    if (c != -1) {
+                        pos--;
+                    }
+                    break;
+                }
+            }
+            String literal = text.toString();
+            if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null")) {
+                throw syntaxError("invalid literal: " + literal);
+            }
+        }
+
+        private int nextNonWhitespace() throws IOException {
+            int c = nextNonWhitespaceOrEnd();
+            if (c == -1) {
+                throw syntaxError("unexpected end of document");
+            }
+            return c;
+        }
+
+        private int nextNonWhitespaceOrEnd() throws IOException {
+            while (true) {
+                int c = nextCharOrEnd();
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    return c;
+                }
+            }
+        }
+
+        private int nextChar() throws IOException {
+            int c = nextCharOrEnd();
+            if (c == -1) {
+                throw syntaxError("unexpected end of document");
+            }
+            return c;
+        }
+
+        // 從緩衝區取出下一個字元，用完時再從輸入讀取；pos-- 可以退回剛讀取的字元
+        private int nextCharOrEnd() throws IOException {
+            if (pos == limit) {
+                offset += limit;
+                pos = 0;
+                limit = in.read(buffer, 0, buffer.length);
+                if (limit <= 0) {
+                    limit = 0;
+                    pos = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos++];
+        }
+
+        private IOException syntaxError(String message) {
+            return new IOException(message + " at offset " + (offset + pos));
+        }
+    }
+}
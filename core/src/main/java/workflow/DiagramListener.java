@@ -0,0 +1,20 @@
+package workflow;
+
+// 導入必要的 Java AWT 類別
+import java.awt.Rectangle;
+
+/**
+ * DiagramListener 介面：接收 DiagramModel 的變動通知，例如畫布依此重繪
+ * 每個編輯操作結束時只通知一次，region 是整個操作累積的變動範圍
+ */
+@FunctionalInterface
+interface DiagramListener {
+    /**
+     * 圖表內容已改變
+     * @param region 需要重繪的範圍（世界座標），null 表示整份圖表都可能改變
+     *               模型會重複使用這個物件，只在這次呼叫期間有效，需要保留時請複製
+     * @param structural true 表示圖形被加入、移除或重新組合，依圖形集合建立的快取已不正確；
+     *                   false 表示只有位置或選取狀態改變
+     */
+    void diagramChanged(Rectangle region, boolean structural);
+}
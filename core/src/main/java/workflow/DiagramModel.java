@@ -0,0 +1,1005 @@
+package workflow;
+
+// 導入必要的 Java AWT 和集合類別
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DiagramModel 類別：圖表的資料與編輯邏輯，不依賴 Swing 元件
+ * 包含圖形（依深度維持繪製順序）、連線、圖形與連線的空間索引與選取狀態，以及新增、移動、組合與解散等操作；
+ * 畫布只負責把滑鼠操作轉成這裡的方法呼叫，並在收到 DiagramListener 的通知時重繪
+ * 批次處理、效能量測或背景工作可以直接操作模型，不需要建立視窗或經過事件分派執行緒
+ * 每個編輯操作都在 UndoHistory 記錄一筆 EditCommand，只保存改變的部分，可以復原與重做
+ * 每次通知監聽器前發布新的 DiagramSnapshot，背景執行緒可以透過 getSnapshot() 讀取一致的內容而不需要鎖定
+ * 大量的程式化編輯（匯入、貼上、腳本）可以包在 beginTransaction/commitTransaction 之間，
+ * 空間索引、連線端點、復原紀錄、快照與通知都延到提交時一次處理
+ * 選取狀態由模型記錄被選取的頂層圖形，清除選取只處理這些圖形；請透過 select、addToSelection 或 selectIntersecting 選取，
+ * 直接呼叫 Shape.setSelected 改變頂層圖形的選取狀態時模型不會知道
+ * 這個類別不是執行緒安全的：同一個模型一次只能由一個執行緒操作，顯示在畫布上時就是事件分派執行緒
+ */
+class DiagramModel {
+    private final ZOrderStore shapes = new ZOrderStore(); // 頂層圖形，依深度維持繪製順序
+    private final List<Link> links = new ArrayList<>(); // 所有連線
+    private final List<Link> linksView = Collections.unmodifiableList(links); // 提供給外部的唯讀連線列表
+    private final SpatialIndex<Shape> spatialIndex = new SpatialIndex<>(shapes.paintOrder(), Shape::addPaintBoundsTo); // 圖形的空間索引，用於加速點擊、框選與重繪裁切的查詢
+    private final SpatialIndex<Link> linkIndex = new SpatialIndex<>(null, Link::addBoundsTo); // 連線的空間索引，依加入的先後（與 links 相同）排序，用於重繪裁切
+    private final LinkCollector linkCollector = new LinkCollector(); // 收集移動圖形時受影響的連線
+    private final List<DiagramListener> listeners = new ArrayList<>();
+    private Shape selectedShape = null; // 目前選取的圖形（點選的單一圖形）
+    private final Set<Shape> selectedShapes = Collections.newSetFromMap(new IdentityHashMap<>()); // 被選取的頂層圖形（包含框選的圖形）
+    private final Rectangle dirtyRegion = new Rectangle(); // 目前操作累積的變動範圍，操作結束時一次通知；重複使用，拖曳時不產生垃圾物件
+    private boolean dirty = false; // dirtyRegion 是否有內容
+    private int lastLinkUpdateCount = 0; // 最近一次移動圖形時重新計算的連線數量
+    private final UndoHistory history = new UndoHistory(); // 復原與重做的紀錄
+    private final SnapshotPublisher snapshots = new SnapshotPublisher(shapes); // 提供給背景執行緒的不可變快照
+
+    // 交易進行中延後處理的工作
+    private int transactionDepth = 0; // 巢狀交易的層數，0 表示沒有交易
+    private boolean transactionStructural = false; // 交易中是否有結構性的改變
+    private boolean transactionRepaintAll = false; // 交易中是否需要重繪整個畫面
+    private final Set<Shape> pendingIndex = Collections.newSetFromMap(new IdentityHashMap<>()); // 空間索引待更新的頂層圖形
+    private final Set<Link> pendingPorts = Collections.newSetFromMap(new IdentityHashMap<>()); // 端點待重新計算的連線
+    private final List<EditCommand> transactionCommands = new ArrayList<>(); // 提交時合併成一筆復原紀錄
+
+    // 進行中的拖曳（見 moveShape），dragLinks 為 null 表示沒有
+    private Shape dragShape = null; // 拖曳的單一圖形
+    private Shape[] dragShapes = null; // 拖曳的多個圖形
+    private Link[] dragLinks = null; // 受影響的連線，拖曳期間不會改變
+    private int[] dragPortsBefore = null; // 拖曳開始前連線的端點座標
+    private int dragDx, dragDy; // 累積的位移量
+
+    /**
+     * 註冊變動通知
+     * @param listener 要加入的監聽器
+     */
+    public void addListener(DiagramListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 取消變動通知
+     * @param listener 要移除的監聽器
+     */
+    public void removeListener(DiagramListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 新增圖形，並清除目前的選取狀態
+     * @param shape 要新增的圖形
+     */
+    public void addShape(Shape shape) {
+        finishMove();
+        clearSelectionState();
+        insertShape(shape, -1);
+        record(new EditCommand.AddShape(shape, shapes.sequenceOf(shape)));
+        fireChanged(true);
+    }
+
+    /**
+     * 在兩個圖形之間建立連線
+     * @param startShape, startPort 起始圖形與連接點
+     * @param endShape, endPort 結束圖形與連接點
+     * @param type 連線類型
+     * @return 新建立的連線
+     */
+    public Link addLink(Shape startShape, Point startPort, Shape endShape, Point endPort, LinkType type) {
+        finishMove(); // 新連線會改變拖曳中圖形受影響的連線，之後的移動重新收集
+        Link link = new Link(startShape, startPort, endShape, endPort, type);
+        insertLink(link);
+        record(new EditCommand.AddLink(link));
+        fireChanged(false);
+        return link;
+    }
+
+    /**
+     * 只選取指定的圖形，作為之後拖曳與解散的對象
+     * @param shape 要選取的圖形
+     */
+    public void select(Shape shape) {
+        clearSelectionState();
+        selectedShape = shape;
+        shape.setSelected(true);
+        selectedShapes.add(shape);
+        markDirty(shape.getPaintBounds()); // 重繪以顯示連接埠
+        fireChanged(false);
+    }
+
+    /**
+     * 將頂層圖形加入選取（多重選取），原本的選取狀態保留
+     * @param shape 要加入選取的頂層圖形
+     */
+    public void addToSelection(Shape shape) {
+        shape.setSelected(true);
+        selectedShapes.add(shape);
+        markDirty(shape.getPaintBounds());
+        fireChanged(false);
+    }
+
+    /**
+     * 選取邊界與指定範圍相交的所有頂層圖形（框選），原本的選取狀態保留
+     * @param rect 選取範圍（世界座標）
+     */
+    public void selectIntersecting(Rectangle rect) {
+        // 從空間索引取出與選取框相交的圖形
+        for (Shape shape : spatialIndex.query(rect)) {
+            // 索引以繪製範圍查詢，這裡再以圖形邊界精確判斷
+            if (rect.intersects(shape.getBounds())) {
+                shape.setSelected(true);
+                selectedShapes.add(shape);
+                markDirty(shape.getPaintBounds());
+            }
+        }
+        fireChanged(false);
+    }
+
+    /**
+     * 清除所有圖形的選取狀態
+     */
+    public void clearSelection() {
+        clearSelectionState();
+        fireChanged(false);
+    }
+
+    // 清除選取狀態並記錄需要重繪的範圍，不發出通知
+    // 只處理被選取的圖形，成本與選取的數量有關，連續新增圖形時不必每次掃描全部圖形
+    private void clearSelectionState() {
+        selectedShape = null;
+        // 原本被選取的圖形需要重繪以移除連接埠
+        for (Shape shape : selectedShapes) {
+            markDirty(shape.getPaintBounds());
+            shape.setSelected(false);
+        }
+        selectedShapes.clear();
+    }
+
+    /**
+     * 將選取的多個圖形組合成一個複合圖形，並選取新的複合圖形
+     * @return 新的複合圖形；選取的圖形少於兩個時不組合，返回 null
+     */
+    public Composite groupSelectedShapes() {
+        finishMove(); // 組合與解散會改變拖曳中圖形的結構與連線端點，先結束拖曳
+        // 當選取超過一個圖形時才進行組合
+        if (selectedShapes.size() <= 1) {
+            return null;
+        }
+        Shape[] children = getSelectedShapes(); // 依繪製順序
+        EditorEvents.Group event = new EditorEvents.Group();
+        event.begin();
+        Composite composite = new Composite();
+        long[] childSequences = new long[children.length];
+        // 將選取的圖形加入複合圖形中，記錄原本的上下位置供復原使用
+        for (int i = 0; i < children.length; i++) {
+            composite.addShape(children[i]);
+            childSequences[i] = shapes.sequenceOf(children[i]);
+        }
+        // 移除原始圖形並加入複合圖形，同步空間索引：子圖形改由複合圖形代表
+        attachChildren(composite, -1, children);
+        clearSelectionState();
+        composite.setSelected(true); // 選取新的複合圖形
+        selectedShapes.add(composite);
+        record(new EditCommand.Group(composite, shapes.sequenceOf(composite), children, childSequences));
+        event.end();
+        if (event.shouldCommit()) {
+            event.shapes = children.length;
+            event.commit();
+        }
+        fireChanged(true);
+        return composite;
+    }
+
+    /**
+     * 解散選取的複合圖形，連到組合的連線改接到最接近原本端點的子圖形
+     * @return 是否有解散；目前選取的不是複合圖形時返回 false
+     */
+    public boolean ungroupSelectedComposite() {
+        finishMove();
+        if (!(selectedShape instanceof Composite)) {
+            return false;
+        }
+        EditorEvents.Group event = new EditorEvents.Group();
+        event.begin();
+        Composite composite = (Composite) selectedShape;
+        List<Shape> childShapes = composite.getChildShapes();
+        Shape[] children = childShapes.toArray(new Shape[0]);
+
+        // 處理與 Composite 相關的連線：直接取自組合自己的連線列表，不必掃描全部連線
+        // 複製一份，因為下面會從組合的列表中移除連線
+        Link[] compositeLinks = composite.getLinks().toArray(new Link[0]);
+        if (transactionDepth > 0) {
+            // 交易中延後計算的端點要先算好，才能找出最接近的子圖形
+            updatePorts(compositeLinks);
+            for (Link link : compositeLinks) {
+                pendingPorts.remove(link);
+            }
+        }
+        int[] portsBefore = EditCommand.ports(compositeLinks);
+        Shape[] startChildren = new Shape[compositeLinks.length];
+        Shape[] endChildren = new Shape[compositeLinks.length];
+
+        markShapeDirty(composite); // 記錄解散前的範圍（包含相關連線）
+
+        // 重新建立連線關聯：連到組合的一端改接到最接近原本端點的子圖形
+        for (int i = 0; i < compositeLinks.length; i++) {
+            Link link = compositeLinks[i];
+            if (link.getStartShape() == composite) {
+                startChildren[i] = findClosestChildShape(childShapes, link.getStartPort());
+            }
+            if (link.getEndShape() == composite) {
+                endChildren[i] = findClosestChildShape(childShapes, link.getEndPort());
+            }
+            reattachLink(link, startChildren[i], endChildren[i]);
+
+            // 更新連線的端點
+            link.updatePorts();
+            linkIndex.update(link);
+            markDirty(link.getBounds()); // 記錄連線的新範圍
+        }
+
+        // 移除 composite，子圖形依各自的深度放回最上層，並同步空間索引
+        long compositeSequence = shapes.sequenceOf(composite);
+        long[] childSequences = detachChildren(composite, children, null);
+        clearSelectionState();
+        record(new EditCommand.Ungroup(composite, compositeSequence, children, childSequences,
+                compositeLinks, startChildren, endChildren, portsBefore, EditCommand.ports(compositeLinks)));
+        event.end();
+        if (event.shouldCommit()) {
+            event.ungroup = true;
+            event.shapes = children.length;
+            event.links = compositeLinks.length;
+            event.commit();
+        }
+        fireChanged(true);
+        return true;
+    }
+
+    // 輔助方法：找到最接近指定點的子圖形
+    private Shape findClosestChildShape(List<Shape> childShapes, Point point) {
+        Shape closest = null;
+        double minDistance = Double.MAX_VALUE;
+
+        for (Shape child : childShapes) {
+            // 計算到圖形中心的距離
+            Point center = child.getCenter();
+            // 計算歐幾里得距離
+            // pow平方，sqrt開根號
+            double distance = Math.sqrt(Math.pow(center.x - point.x, 2) + Math.pow(center.y - point.y, 2));
+
+            if (distance < minDistance) {
+                minDistance = distance;
+                closest = child;
+            }
+        }
+
+        return closest;
+    }
+
+    /**
+     * 移動圖形並更新所有相關連線
+     * 從圖形（含組合內子圖形）自己的連線列表收集受影響的連線，每條連線只收集一次、重新計算一次，
+     * 成本只與被移動子樹的連線數量有關，不必掃描全部連線
+     * 同時記錄移動前後的範圍以便局部重繪
+     * 連續移動同一個圖形時視為同一次拖曳：受影響的連線與移動前的端點只在第一次取得，之後每一步只累加位移量，
+     * 到 markBoundary() 或下一個編輯操作時才記錄成一筆復原紀錄；快照也延到那時才發布，拖曳期間不產生垃圾物件
+     * @param shape 要移動的頂層圖形
+     * @param dx, dy 位移量
+     */
+    public void moveShape(Shape shape, int dx, int dy) {
+        EditorEvents.LinkUpdate event = new EditorEvents.LinkUpdate();
+        event.begin();
+        Link[] movedLinks = beginMove(shape, null);
+        // 記錄移動前的範圍（圖形與相關連線）
+        markPaintBoundsDirty(shape);
+        markLinksDirty(movedLinks);
+
+        shape.move(dx, dy);
+        indexUpdate(shape); // 同步空間索引中的位置
+        snapshots.treeChanged(shape);
+        updateMovedPorts(movedLinks); // 每條受影響的連線只重新計算一次
+
+        // 記錄移動後的範圍
+        markPaintBoundsDirty(shape);
+        markLinksDirty(movedLinks);
+        event.end();
+        if (event.shouldCommit()) {
+            event.links = movedLinks.length;
+            event.commit();
+        }
+        endMove(dx, dy);
+        fireChanged(false);
+    }
+
+    /**
+     * 以相同位移量移動多個頂層圖形（拖曳多重選取），並更新所有相關連線
+     * 先收集所有圖形相關連線的聯集，共用同一條連線的圖形不會讓它被重新計算兩次；
+     * 變動範圍是移動前後所有圖形與連線範圍的聯集，只發出一次通知
+     * @param movedShapes 要移動的頂層圖形，拖曳期間每次傳入同一個陣列，連續移動才會視為同一次拖曳（見 moveShape）
+     * @param dx, dy 位移量
+     */
+    public void moveShapes(Shape[] movedShapes, int dx, int dy) {
+        if (movedShapes.length == 1) {
+            moveShape(movedShapes[0], dx, dy);
+            return;
+        }
+        EditorEvents.LinkUpdate event = new EditorEvents.LinkUpdate();
+        event.begin();
+        Link[] movedLinks = beginMove(null, movedShapes);
+        // 記錄移動前的範圍
+        for (Shape shape : movedShapes) {
+            markPaintBoundsDirty(shape);
+        }
+        markLinksDirty(movedLinks);
+
+        for (Shape shape : movedShapes) {
+            shape.move(dx, dy);
+            indexUpdate(shape);
+            snapshots.treeChanged(shape);
+        }
+        updateMovedPorts(movedLinks); // 聯集中的每條連線只重新計算一次
+
+        // 記錄移動後的範圍
+        for (Shape shape : movedShapes) {
+            markPaintBoundsDirty(shape);
+        }
+        markLinksDirty(movedLinks);
+        event.end();
+        if (event.shouldCommit()) {
+            event.links = movedLinks.length;
+            event.commit();
+        }
+        endMove(dx, dy);
+        fireChanged(false);
+    }
+
+    /**
+     * 結束目前的拖曳：進行中的連續移動記錄成一筆復原紀錄並發布快照，之後的移動會成為新的一筆
+     * 畫布在按下與放開滑鼠時呼叫；直接呼叫 moveShape 的程式在一連串移動之後也應該呼叫
+     */
+    public void markBoundary() {
+        finishMove();
+        history.markBoundary();
+    }
+
+    // 開始或延續一次拖曳：與進行中的拖曳是同一個圖形（或同一個陣列）時沿用已收集的連線，
+    // 否則先結束進行中的拖曳，再收集受影響的連線並記下移動前的端點
+    private Link[] beginMove(Shape shape, Shape[] shapeArray) {
+        if (dragLinks != null && dragShape == shape && dragShapes == shapeArray) {
+            return dragLinks;
+        }
+        finishMove();
+        List<Link> affectedLinks = shapeArray == null ? linkCollector.collect(shape) : linkCollector.collect(shapeArray);
+        Link[] movedLinks = affectedLinks.toArray(new Link[0]);
+        dragShape = shape;
+        dragShapes = shapeArray;
+        dragLinks = movedLinks;
+        dragPortsBefore = EditCommand.ports(movedLinks);
+        if (transactionDepth == 0) {
+            // 拖曳期間受影響的連線每一步都會移動，暫時移出連線索引的格子，結束拖曳時再登記回去
+            for (Link link : movedLinks) {
+                linkIndex.unsettle(link);
+            }
+        }
+        dragDx = 0;
+        dragDy = 0;
+        return movedLinks;
+    }
+
+    // 一步移動完成：累加位移量；交易中不延續拖曳，立即記錄（提交時與其他操作合併成一筆）
+    private void endMove(int dx, int dy) {
+        dragDx += dx;
+        dragDy += dy;
+        lastLinkUpdateCount = dragLinks.length;
+        if (transactionDepth > 0) {
+            finishMove();
+        }
+    }
+
+    // 重新計算移動後的連線端點；交易中只記下連線，提交時每條只計算一次
+    private void updateMovedPorts(Link[] movedLinks) {
+        if (transactionDepth > 0) {
+            Collections.addAll(pendingPorts, movedLinks);
+            return;
+        }
+        for (int i = 0; i < movedLinks.length; i++) {
+            movedLinks[i].updatePorts();
+            linkIndex.update(movedLinks[i]);
+            snapshots.linkChanged(movedLinks[i]);
+        }
+    }
+
+    // 將進行中的拖曳記錄成一筆復原紀錄，移動後的端點在這時才讀取一次；沒有進行中的拖曳時不做任何事
+    private void finishMove() {
+        Link[] movedLinks = dragLinks;
+        if (movedLinks == null) {
+            return;
+        }
+        dragLinks = null;
+        linkIndex.settle();
+        EditCommand command = dragShapes == null
+                ? new EditCommand.Move(dragShape, dragDx, dragDy, movedLinks, dragPortsBefore, EditCommand.ports(movedLinks))
+                : new EditCommand.MoveShapes(dragShapes, dragDx, dragDy, movedLinks, dragPortsBefore,
+                        EditCommand.ports(movedLinks));
+        dragShape = null;
+        dragShapes = null;
+        dragPortsBefore = null;
+        record(command);
+        if (transactionDepth == 0) {
+            snapshots.publish(); // 拖曳期間延後的快照；交易中仍等到提交
+        }
+    }
+
+    /**
+     * 標籤等外觀屬性改變後通知模型
+     * 重新登記圖形在空間索引中的繪製範圍（標籤大小可能改變）
+     * @param shape 外觀已改變的頂層圖形
+     */
+    public void shapeChanged(Shape shape) {
+        indexUpdate(shape);
+        snapshots.shapeChanged(shape);
+        if (transactionDepth > 0) {
+            transactionRepaintAll = true;
+            return;
+        }
+        dirty = false;
+        notifyListeners(null, true);
+    }
+
+    /**
+     * 標籤樣式已直接修改在圖形上（例如標籤對話框）之後通知模型，並記錄為可復原的操作
+     * @param shape 標籤已改變的頂層圖形
+     * @param before 修改前的樣式
+     */
+    public void labelChanged(Shape shape, LabelStyle before) {
+        LabelStyle after = LabelStyle.of(shape);
+        if (!after.equals(before)) {
+            record(new EditCommand.ChangeLabel(shape, before, after));
+        }
+        shapeChanged(shape);
+    }
+
+    /**
+     * 復原最近一次的編輯操作，並清除選取狀態
+     * @return 是否有可復原的操作
+     */
+    public boolean undo() {
+        checkNoTransaction();
+        finishMove();
+        EditCommand command = history.popUndo();
+        if (command == null) {
+            return false;
+        }
+        clearSelectionState();
+        command.undo(this);
+        fireChanged(true);
+        return true;
+    }
+
+    /**
+     * 重做最近一次復原的編輯操作，並清除選取狀態
+     * @return 是否有可重做的操作
+     */
+    public boolean redo() {
+        checkNoTransaction();
+        finishMove();
+        EditCommand command = history.popRedo();
+        if (command == null) {
+            return false;
+        }
+        clearSelectionState();
+        command.redo(this);
+        fireChanged(true);
+        return true;
+    }
+
+    /**
+     * 取得復原與重做的紀錄，可設定位元組預算或標記連續移動的邊界
+     * @return 編輯紀錄
+     */
+    public UndoHistory getHistory() {
+        finishMove(); // 進行中的拖曳也要出現在紀錄中
+        return history;
+    }
+
+    /**
+     * 開始交易：之後的編輯操作照常修改圖表，但空間索引、連線端點的重新計算、復原紀錄、快照發布與變動通知
+     * 都延到最外層的 commitTransaction 一次處理，大量新增或移動時只需要一次重建與一次重繪
+     * 連線端點在提交時才依圖形最後的位置重新選擇最接近的連接點，所以多次移動的結果可能與逐次移動時不同
+     * 交易可以巢狀；交易期間以座標查詢圖形（findTopmostShapeAt、query、selectIntersecting）使用的是交易開始前的索引，
+     * 也不能呼叫 undo、redo 或 setDiagram
+     */
+    public void beginTransaction() {
+        finishMove(); // 交易前的拖曳不併入交易
+        transactionDepth++;
+    }
+
+    /**
+     * 提交交易：最外層的交易結束時，更新空間索引與連線端點，整個交易記錄為一筆可復原的操作，並發出一次通知
+     */
+    public void commitTransaction() {
+        if (transactionDepth == 0) {
+            throw new IllegalStateException("no transaction in progress");
+        }
+        if (--transactionDepth > 0) {
+            return;
+        }
+        // 空間索引：改變的圖形太多時整個重建比逐一更新快
+        if (pendingIndex.size() > shapes.size() / 2) {
+            spatialIndex.clear();
+            for (Shape shape : shapes) {
+                spatialIndex.insert(shape);
+            }
+        } else {
+            for (Shape shape : pendingIndex) {
+                if (shapes.sequenceOf(shape) >= 0) {
+                    spatialIndex.insert(shape); // 已在索引中時等於 update
+                } else {
+                    spatialIndex.remove(shape);
+                }
+            }
+        }
+        pendingIndex.clear();
+
+        // 連線端點：每條連線只計算一次
+        Link[] updatedLinks = pendingPorts.toArray(new Link[0]);
+        pendingPorts.clear();
+        updatePorts(updatedLinks);
+        if (updatedLinks.length > 0) {
+            lastLinkUpdateCount = updatedLinks.length;
+        }
+
+        // 復原紀錄：整個交易是一筆，不與前後的拖曳合併
+        if (!transactionCommands.isEmpty()) {
+            EditCommand command = transactionCommands.size() == 1 && updatedLinks.length == 0
+                    ? transactionCommands.get(0)
+                    : new EditCommand.Batch(transactionCommands.toArray(new EditCommand[0]), updatedLinks);
+            transactionCommands.clear();
+            history.markBoundary();
+            history.record(command);
+            history.markBoundary();
+        }
+
+        boolean structural = transactionStructural;
+        boolean repaintAll = transactionRepaintAll;
+        transactionStructural = false;
+        transactionRepaintAll = false;
+        if (repaintAll) {
+            dirty = false;
+            notifyListeners(null, true);
+        } else {
+            fireChanged(structural);
+        }
+    }
+
+    /**
+     * 在交易中執行一組編輯，結束（包含拋出例外）時提交
+     * @param edits 編輯操作
+     */
+    public void runInTransaction(Runnable edits) {
+        beginTransaction();
+        try {
+            edits.run();
+        } finally {
+            commitTransaction();
+        }
+    }
+
+    // 檢查目前是否在交易中
+    public boolean isInTransaction() {
+        return transactionDepth > 0;
+    }
+
+    // ===== 以下是編輯操作與 EditCommand 共用的基本修改，只記錄變動範圍，不記錄歷史也不發出通知 =====
+
+    // 加入頂層圖形；sequence 小於 0 時放在同深度的最上層，否則放回該序號的位置
+    void insertShape(Shape shape, long sequence) {
+        if (sequence < 0) {
+            shapes.add(shape); // 依深度放到正確的繪製位置，不需要重新排序
+        } else {
+            shapes.add(shape, sequence);
+        }
+        indexInsert(shape); // 將新圖形登記到空間索引
+        if (shape.isSelected()) {
+            selectedShapes.add(shape); // 例如復原解散時放回的已選取組合
+        }
+        snapshots.shapeChanged(shape);
+        markDirty(shape.getPaintBounds()); // 只需重繪新圖形所在的區域
+    }
+
+    // 移除頂層圖形，返回它原本的序號
+    long removeShape(Shape shape) {
+        long sequence = shapes.sequenceOf(shape);
+        markDirty(shape.getPaintBounds());
+        shapes.remove(shape);
+        selectedShapes.remove(shape); // 只記錄頂層圖形
+        indexRemove(shape);
+        snapshots.shapeChanged(shape);
+        return sequence;
+    }
+
+    // 加入連線，並登記到兩端圖形的連線列表
+    void insertLink(Link link) {
+        links.add(link);
+        link.getStartShape().addLink(link);
+        link.getEndShape().addLink(link);
+        linkIndex.insert(link);
+        snapshots.linkChanged(link);
+        markDirty(link.getBounds());
+    }
+
+    // 移除連線；復原時移除的通常是最後加入的連線，從尾端搜尋
+    void removeLink(Link link) {
+        int index = links.lastIndexOf(link);
+        if (index >= 0) {
+            links.remove(index);
+        }
+        link.getStartShape().removeLink(link);
+        link.getEndShape().removeLink(link);
+        linkIndex.remove(link);
+        snapshots.linkRemoved(link);
+        markDirty(link.getBounds());
+    }
+
+    // 將連線的起點/終點改接到指定圖形，null 表示該端不變
+    void reattachLink(Link link, Shape start, Shape end) {
+        if (start != null) {
+            link.getStartShape().removeLink(link);
+            link.setStartShape(start);
+            start.addLink(link);
+        }
+        if (end != null) {
+            link.getEndShape().removeLink(link);
+            link.setEndShape(end);
+            end.addLink(link);
+        }
+        snapshots.linkChanged(link);
+    }
+
+    // 直接設定連線的端點座標（見 EditCommand.ports）
+    void setPorts(Link[] portLinks, int[] ports) {
+        for (int i = 0; i < portLinks.length; i++) {
+            Link link = portLinks[i];
+            markDirty(link.getBounds());
+            link.getStartPort().setLocation(ports[i * 4], ports[i * 4 + 1]);
+            link.getEndPort().setLocation(ports[i * 4 + 2], ports[i * 4 + 3]);
+            linkIndex.update(link);
+            snapshots.linkChanged(link);
+            markDirty(link.getBounds());
+        }
+    }
+
+    // 依兩端圖形目前的位置重新計算連線端點
+    void updatePorts(Link[] portLinks) {
+        for (Link link : portLinks) {
+            markDirty(link.getBounds());
+            link.updatePorts();
+            linkIndex.update(link);
+            snapshots.linkChanged(link);
+            markDirty(link.getBounds());
+        }
+    }
+
+    // 移動頂層圖形，連線端點直接設為記錄的座標
+    void translate(Shape shape, int dx, int dy, Link[] movedLinks, int[] ports) {
+        markDirty(shape.getPaintBounds());
+        shape.move(dx, dy);
+        indexUpdate(shape);
+        snapshots.treeChanged(shape);
+        markDirty(shape.getPaintBounds());
+        setPorts(movedLinks, ports);
+    }
+
+    // 移動多個頂層圖形，連線端點直接設為記錄的座標
+    void translate(Shape[] movedShapes, int dx, int dy, Link[] movedLinks, int[] ports) {
+        for (Shape shape : movedShapes) {
+            markDirty(shape.getPaintBounds());
+            shape.move(dx, dy);
+            indexUpdate(shape);
+            snapshots.treeChanged(shape);
+            markDirty(shape.getPaintBounds());
+        }
+        setPorts(movedLinks, ports);
+    }
+
+    // 套用標籤樣式，標籤大小可能改變，重新登記繪製範圍
+    void applyLabelStyle(Shape shape, LabelStyle style) {
+        markDirty(shape.getPaintBounds());
+        style.applyTo(shape);
+        indexUpdate(shape);
+        snapshots.shapeChanged(shape);
+        markDirty(shape.getPaintBounds());
+    }
+
+    // 將頂層圖形移入複合圖形（子圖形的 parent 已經或將要指向它），再把複合圖形放到指定序號的位置
+    void attachChildren(Composite composite, long compositeSequence, Shape[] children) {
+        for (Shape child : children) {
+            removeShape(child);
+            child.setParent(composite);
+        }
+        composite.invalidateCaches();
+        insertShape(composite, compositeSequence);
+    }
+
+    /**
+     * 移除複合圖形，子圖形回到最上層
+     * @param composite 複合圖形
+     * @param children 子圖形
+     * @param childSequences 子圖形放回的序號，null 表示放在各自深度的最上層
+     * @return 子圖形放回後的序號
+     */
+    long[] detachChildren(Composite composite, Shape[] children, long[] childSequences) {
+        removeShape(composite);
+        long[] sequences = new long[children.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i].setParent(null); // 子圖形回到最上層，不再屬於組合
+            insertShape(children[i], childSequences == null ? -1 : childSequences[i]);
+            sequences[i] = shapes.sequenceOf(children[i]);
+        }
+        return sequences;
+    }
+
+    /**
+     * 找出位於指定座標上最上層的圖形
+     * 透過空間索引取得候選圖形（已依上層優先排序），再以圖形本身的 contains 精確判斷
+     * @param x, y 座標
+     * @param exclude 要略過的圖形，可為 null
+     * @return 最上層的圖形，如果沒有則返回 null
+     */
+    public Shape findTopmostShapeAt(int x, int y, Shape exclude) {
+        for (Shape shape : spatialIndex.query(x, y)) {
+            if (shape != exclude && shape.contains(x, y)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 取得繪製範圍與指定區域相交的頂層圖形
+     * @param rect 查詢範圍（世界座標）
+     * @return 圖形列表，上層的圖形在前
+     */
+    public List<Shape> query(Rectangle rect) {
+        return spatialIndex.query(rect);
+    }
+
+    /**
+     * 取得範圍（含箭頭）與指定區域相交的連線
+     * 連線的索引在端點改變時立即更新，拖曳中與交易提交後查詢的都是目前的位置
+     * @param rect 查詢範圍（世界座標）
+     * @return 連線列表，後加入（上層）的連線在前
+     */
+    public List<Link> queryLinks(Rectangle rect) {
+        return linkIndex.query(rect);
+    }
+
+    /**
+     * 計算與指定區域相交的頂層圖形與連線數量，由兩個空間索引計算，不必走訪全部連線
+     * @param rect 查詢範圍（世界座標）
+     * @return 圖形與連線數量的總和
+     */
+    public int countElements(Rectangle rect) {
+        return spatialIndex.count(rect) + linkIndex.count(rect);
+    }
+
+    /**
+     * 收集與圖形（含組合內子圖形）相關的連線
+     * @param shape 圖形
+     * @return 不重複的連線列表，內容在下一次收集或移動圖形時會被覆蓋
+     */
+    public List<Link> collectLinks(Shape shape) {
+        return linkCollector.collect(shape);
+    }
+
+    /**
+     * 收集與多個圖形相關的連線聯集
+     * @param shapes 圖形
+     * @return 不重複的連線列表，內容在下一次收集或移動圖形時會被覆蓋
+     */
+    public List<Link> collectLinks(Shape[] shapes) {
+        return linkCollector.collect(shapes);
+    }
+
+    // 取得所有頂層圖形，依繪製順序（下層在前）
+    public Iterable<Shape> getShapes() {
+        return shapes;
+    }
+
+    // 取得所有連線（唯讀）
+    public List<Link> getLinks() {
+        return linksView;
+    }
+
+    // 取得頂層圖形數量
+    public int getShapeCount() {
+        return shapes.size();
+    }
+
+    // 取得連線數量
+    public int getLinkCount() {
+        return links.size();
+    }
+
+    // 取得最近一次移動圖形時重新計算的連線數量
+    public int getLastLinkUpdateCount() {
+        return lastLinkUpdateCount;
+    }
+
+    /**
+     * 取得目前選中的圖形
+     * @return 以 select 選中的圖形，如果沒有則返回 null
+     */
+    public Shape getSelectedShape() {
+        return selectedShape;
+    }
+
+    /**
+     * 取得所有被選取的頂層圖形（包含框選的圖形），只排序被選取的圖形，不必掃描全部頂層圖形
+     * @return 依繪製順序（下層在前）的新陣列
+     */
+    public Shape[] getSelectedShapes() {
+        Shape[] selected = selectedShapes.toArray(new Shape[0]);
+        Arrays.sort(selected, shapes.paintOrder());
+        return selected;
+    }
+
+    /**
+     * 取得目前的圖表內容，用於存檔
+     * @return 頂層圖形（依繪製順序）與所有連線的複本
+     */
+    public Diagram getDiagram() {
+        List<Shape> topLevel = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes) {
+            topLevel.add(shape);
+        }
+        return new Diagram(topLevel, new ArrayList<>(links));
+    }
+
+    /**
+     * 取得最新發布的不可變快照，可在任何執行緒呼叫，用於背景存檔、匯出或分析
+     * 快照在每次編輯操作結束時發布，只替換有改變的記錄；拖曳期間（見 moveShape）停在拖曳開始前的內容，拖曳結束時才發布
+     * @return 快照
+     */
+    public DiagramSnapshot getSnapshot() {
+        return snapshots.getSnapshot();
+    }
+
+    /**
+     * 以新的圖表取代所有內容，用於讀檔
+     * @param diagram 新的圖表
+     */
+    public void setDiagram(Diagram diagram) {
+        checkNoTransaction();
+        finishMove();
+        clearSelectionState();
+        history.clear();
+        shapes.clear();
+        spatialIndex.clear();
+        linkIndex.clear();
+        links.clear();
+        for (Shape shape : diagram.shapes()) {
+            shape.setSelected(false);
+            shapes.add(shape);
+            spatialIndex.insert(shape);
+        }
+        links.addAll(diagram.links());
+        snapshots.reset();
+        for (Shape shape : shapes) {
+            snapshots.treeChanged(shape);
+        }
+        for (int i = 0; i < links.size(); i++) {
+            LinkCollector.resetMark(links.get(i)); // 連線可能來自其他模型，舊的標記可能與這個模型的標記值相同
+            linkIndex.insert(links.get(i));
+            snapshots.linkChanged(links.get(i));
+        }
+        dirty = false;
+        notifyListeners(null, true);
+    }
+
+    // 將指定區域加入目前操作的變動範圍
+    private void markDirty(Rectangle region) {
+        dirtyRegion().add(region);
+    }
+
+    // 取得目前操作的變動範圍以便合併新的區域；還沒有內容時設為不存在的矩形，第一次合併時直接換成該區域
+    private Rectangle dirtyRegion() {
+        if (!dirty) {
+            dirtyRegion.setBounds(0, 0, -1, -1);
+            dirty = true;
+        }
+        return dirtyRegion;
+    }
+
+    // 將圖形的繪製範圍加入變動範圍，不建立新物件
+    private void markPaintBoundsDirty(Shape shape) {
+        shape.addPaintBoundsTo(dirtyRegion());
+    }
+
+    // 將圖形目前的繪製範圍，以及它（含組合內子圖形）相關連線的範圍加入變動範圍
+    private void markShapeDirty(Shape shape) {
+        markDirty(shape.getPaintBounds());
+        markLinksDirty(linkCollector.collect(shape));
+    }
+
+    // 將連線的範圍加入變動範圍
+    private void markLinksDirty(List<Link> affectedLinks) {
+        for (int i = 0; i < affectedLinks.size(); i++) {
+            markDirty(affectedLinks.get(i).getBounds());
+        }
+    }
+
+    private void markLinksDirty(Link[] affectedLinks) {
+        Rectangle region = dirtyRegion();
+        for (Link link : affectedLinks) {
+            link.addBoundsTo(region);
+        }
+    }
+
+    // 操作結束：送出累積的變動範圍；沒有任何變動時不通知
+    private void fireChanged(boolean structural) {
+        if (transactionDepth > 0) {
+            transactionStructural |= structural; // 變動範圍繼續累積，提交時一次通知
+            return;
+        }
+        boolean changed = dirty;
+        dirty = false;
+        if (changed || structural) {
+            notifyListeners(changed ? dirtyRegion : new Rectangle(), structural);
+        }
+    }
+
+    // 記錄一筆可復原的操作；交易中先保留，提交時合併
+    private void record(EditCommand command) {
+        finishMove(); // 其他操作記錄前，進行中的拖曳先成為一筆紀錄
+        if (transactionDepth > 0) {
+            transactionCommands.add(command);
+        } else {
+            history.record(command);
+        }
+    }
+
+    // 空間索引的維護；交易中只記下圖形，提交時處理
+    private void indexInsert(Shape shape) {
+        if (transactionDepth > 0) {
+            pendingIndex.add(shape);
+        } else {
+            spatialIndex.insert(shape);
+        }
+    }
+
+    private void indexRemove(Shape shape) {
+        if (transactionDepth > 0) {
+            pendingIndex.add(shape);
+        } else {
+            spatialIndex.remove(shape);
+        }
+    }
+
+    private void indexUpdate(Shape shape) {
+        if (transactionDepth > 0) {
+            pendingIndex.add(shape);
+        } else {
+            spatialIndex.update(shape);
+        }
+    }
+
+    private void checkNoTransaction() {
+        if (transactionDepth > 0) {
+            throw new IllegalStateException("not allowed during a transaction");
+        }
+    }
+
+    private void notifyListeners(Rectangle region, boolean structural) {
+        if (dragLinks == null) {
+            snapshots.publish(); // 監聽器與背景執行緒看到的是同一個版本；拖曳期間延到拖曳結束才發布
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).diagramChanged(region, structural);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package workflow;
+
+// 導入必要的 Java AWT 和集合類別
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.util.List;
+
+/**
+ * DiagramPainter 類別：在視窗以外繪製整份圖表，例如批次輸出圖片
+ * 使用與畫布相同的 Shape.draw / Link.draw，繪製順序同樣由 ZOrderStore 決定，
+ * 因此輸出的圖片與編輯器中看到的一致（不含選取狀態）
+ * 建立後只會讀取圖表，多個執行緒可以同時以不同的裁切範圍繪製同一個 DiagramPainter
+ */
+class DiagramPainter {
+    private final ZOrderStore shapes = new ZOrderStore(); // 頂層圖形，依繪製順序
+    private final SpatialIndex<Shape> spatialIndex = new SpatialIndex<>(shapes.paintOrder(), Shape::addPaintBoundsTo); // 依範圍查詢圖形
+    private final SpatialIndex<Link> linkIndex = new SpatialIndex<>(null, Link::addBoundsTo); // 依範圍查詢連線，依列表順序排序
+    private final List<Link> links; // 所有連線
+    private final Rectangle bounds; // 整份圖表的繪製範圍
+
+    /**
+     * @param diagram 要繪製的圖表，建立後不應再修改
+     */
+    public DiagramPainter(Diagram diagram) {
+        Rectangle union = null;
+        for (Shape shape : diagram.shapes()) {
+            shape.setSelected(false); // 輸出的圖片不顯示選取狀態
+            shapes.add(shape);
+            spatialIndex.insert(shape);
+            union = union == null ? shape.getPaintBounds() : union.union(shape.getPaintBounds());
+        }
+        this.links = diagram.links();
+        for (Link link : links) {
+            linkIndex.insert(link);
+            union = union == null ? link.getBounds() : union.union(link.getBounds());
+        }
+        this.bounds = union == null ? new Rectangle() : union;
+    }
+
+    // 取得整份圖表的繪製範圍（世界座標），空白圖表為空矩形
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    // 取得頂層圖形數量
+    public int getShapeCount() {
+        return shapes.size();
+    }
+
+    // 取得連線數量
+    public int getLinkCount() {
+        return links.size();
+    }
+
+    /**
+     * 繪製圖表
+     * @param g2d 已套用世界座標轉換的繪圖環境
+     * @param worldClip 只繪製與這個範圍相交的圖形與連線，null 表示全部繪製
+     * @param level 細節層級
+     */
+    public void paint(Graphics2D g2d, Rectangle worldClip, DetailLevel level) {
+        LabelCache.preparePaint(g2d); // 每次繪製只檢查一次轉換
+        if (worldClip == null) {
+            for (Shape shape : shapes) {
+                shape.draw(g2d, false, level);
+            }
+        } else {
+            // 從空間索引取得與範圍相交的圖形（上層在前），由下往上繪製
+            List<Shape> visibleShapes = spatialIndex.query(worldClip);
+            for (int i = visibleShapes.size() - 1; i >= 0; i--) {
+                visibleShapes.get(i).draw(g2d, false, level);
+            }
+        }
+        // 最簡層級：所有連線合併成一條路徑，只呼叫一次 draw
+        Path2D.Float batch = level == DetailLevel.MINIMAL ? new Path2D.Float() : null;
+        // 從空間索引取得與範圍相交的連線（後加入的在前），依列表順序繪製
+        List<Link> visibleLinks = worldClip == null ? links : linkIndex.query(worldClip).reversed();
+        for (Link link : visibleLinks) {
+            if (batch != null) {
+                link.appendTo(batch);
+            } else {
+                link.draw(g2d, level);
+            }
+        }
+        if (batch != null) {
+            g2d.setColor(Color.BLACK);
+            g2d.draw(batch);
+        }
+    }
+}
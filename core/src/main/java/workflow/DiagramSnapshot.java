@@ -0,0 +1,182 @@
+package workflow;
+
+// 導入必要的 Java AWT 類別與集合類別
+import java.awt.Color;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * DiagramSnapshot 類別：圖表某個版本的不可變快照，可以在任何執行緒讀取
+ * 圖形與連線各以編號存放在 PersistentVector 中，每個元素是不可變的記錄；被移除的編號為 null，之後可能重新使用
+ * 新版本由 SnapshotPublisher 只替換有改變的記錄產生，其餘部分與前一版共用
+ * 背景存檔或匯出時以 toDiagram() 在自己的執行緒上建立一份獨立的圖形物件，不會碰到畫布正在使用的圖形
+ */
+final class DiagramSnapshot {
+    // 圖形種類
+    enum Kind { RECT, OVAL, COMPOSITE }
+
+    /**
+     * 一個圖形的內容
+     * @param kind 圖形種類
+     * @param x, y 位置（組合的範圍由子圖形決定，不使用）
+     * @param depth 深度
+     * @param parent 所屬組合的編號，頂層圖形為 -1
+     * @param order 排列順序：頂層圖形為 ZOrderStore 的序號，子圖形為在組合中的位置
+     * @param labelText, labelColor, fontSize, rectLabel 標籤樣式
+     */
+    record ShapeRecord(Kind kind, int x, int y, int depth, int parent, long order,
+                       String labelText, Color labelColor, int fontSize, boolean rectLabel) {
+    }
+
+    /**
+     * 一條連線的內容
+     * @param start, end 起點與終點圖形的編號
+     * @param startX, startY, endX, endY 端點座標
+     * @param type 連線類型
+     * @param order 加入的順序，決定繪製的先後
+     */
+    record LinkRecord(int start, int startX, int startY, int end, int endX, int endY, LinkType type, long order) {
+    }
+
+    static final DiagramSnapshot EMPTY =
+            new DiagramSnapshot(0, PersistentVector.empty(), PersistentVector.empty(), 0, 0);
+
+    private final long version; // 版本號，每次發布加一
+    private final PersistentVector<ShapeRecord> shapes; // 編號 -> 圖形，已移除的為 null
+    private final PersistentVector<LinkRecord> links; // 編號 -> 連線，已移除的為 null
+    private final int shapeCount; // 圖形數量（包含組合內的子圖形）
+    private final int linkCount;
+
+    DiagramSnapshot(long version, PersistentVector<ShapeRecord> shapes, PersistentVector<LinkRecord> links,
+                    int shapeCount, int linkCount) {
+        this.version = version;
+        this.shapes = shapes;
+        this.links = links;
+        this.shapeCount = shapeCount;
+        this.linkCount = linkCount;
+    }
+
+    // 取得版本號
+    public long getVersion() {
+        return version;
+    }
+
+    // 圖形數量（包含組合內的子圖形）
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    // 連線數量
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    // 圖形編號的範圍（包含已移除的編號）
+    public int getShapeCapacity() {
+        return shapes.size();
+    }
+
+    // 連線編號的範圍（包含已移除的編號）
+    public int getLinkCapacity() {
+        return links.size();
+    }
+
+    /**
+     * 取得指定編號的圖形
+     * @param id 編號
+     * @return 圖形記錄，已移除或不存在時返回 null
+     */
+    public ShapeRecord getShape(int id) {
+        return id >= 0 && id < shapes.size() ? shapes.get(id) : null;
+    }
+
+    /**
+     * 取得指定編號的連線
+     * @param id 編號
+     * @return 連線記錄，已移除或不存在時返回 null
+     */
+    public LinkRecord getLink(int id) {
+        return id >= 0 && id < links.size() ? links.get(id) : null;
+    }
+
+    // 供 SnapshotPublisher 產生下一個版本
+    PersistentVector<ShapeRecord> shapeVector() {
+        return shapes;
+    }
+
+    PersistentVector<LinkRecord> linkVector() {
+        return links;
+    }
+
+    /**
+     * 依快照內容建立一份新的圖表，可在背景執行緒呼叫
+     * 頂層圖形依繪製順序排列（深度大的在前，同深度依序號），組合內的子圖形與連線依原本的順序
+     * @return 與快照內容相同、與畫布完全獨立的圖表
+     */
+    public Diagram toDiagram() {
+        int capacity = shapes.size();
+        ShapeRecord[] records = new ShapeRecord[capacity];
+        int[] next = {0};
+        shapes.forEach(record -> records[next[0]++] = record); // 先取出所有記錄，排序時不必每次走訪樹
+        Shape[] objects = new Shape[capacity];
+        List<Integer> topLevel = new ArrayList<>();
+        List<Integer> children = new ArrayList<>();
+        for (int id = 0; id < capacity; id++) {
+            ShapeRecord record = records[id];
+            if (record == null) {
+                continue;
+            }
+            Shape shape = switch (record.kind()) {
+                case RECT -> new Rect(record.x(), record.y());
+                case OVAL -> new Oval(record.x(), record.y());
+                case COMPOSITE -> new Composite();
+            };
+            shape.setDepth(record.depth());
+            shape.setLabelText(record.labelText());
+            shape.setLabelColor(record.labelColor());
+            shape.setFontSize(record.fontSize());
+            shape.setRectLabel(record.rectLabel());
+            objects[id] = shape;
+            (record.parent() < 0 ? topLevel : children).add(id);
+        }
+
+        // 子圖形依所屬組合與原本的位置加入
+        children.sort(Comparator.<Integer>comparingInt(id -> records[id].parent())
+                .thenComparingLong(id -> records[id].order()));
+        for (int id : children) {
+            ((Composite) objects[records[id].parent()]).addShape(objects[id]);
+        }
+
+        // 頂層圖形依繪製順序排列，與 ZOrderStore 相同
+        topLevel.sort(Comparator.<Integer>comparingInt(id -> -records[id].depth())
+                .thenComparingLong(id -> records[id].order()));
+        List<Shape> shapeList = new ArrayList<>(topLevel.size());
+        for (int id : topLevel) {
+            shapeList.add(objects[id]);
+        }
+
+        List<LinkRecord> linkRecords = new ArrayList<>(linkCount);
+        links.forEach(record -> {
+            if (record != null) {
+                linkRecords.add(record);
+            }
+        });
+        linkRecords.sort(Comparator.comparingLong(LinkRecord::order));
+        List<Link> linkList = new ArrayList<>(linkRecords.size());
+        for (LinkRecord record : linkRecords) {
+            Shape start = objects[record.start()];
+            Shape end = objects[record.end()];
+            Link link = new Link(start, new Point(record.startX(), record.startY()),
+                    end, new Point(record.endX(), record.endY()), record.type());
+            // 快照中的每條連線只有一筆記錄，不必逐一檢查是否重複（與 DiagramFile 相同）
+            start.appendLoadedLink(link);
+            if (end != start) {
+                end.appendLoadedLink(link);
+            }
+            linkList.add(link);
+        }
+        return new Diagram(shapeList, linkList);
+    }
+}
@@ -0,0 +1,282 @@
+package workflow;
+
+/**
+ * EditCommand 介面：可復原的編輯操作，只記錄這次操作改變的內容（差異），不複製整份圖表
+ * 每種操作各自記錄復原與重做需要的最少資料：移動只記錄位移量與受影響連線的端點座標，
+ * 組合/解散記錄子圖形、原本的上下順序以及連線改接的對象；記憶體用量與改變的數量成正比
+ * undo/redo 透過 DiagramModel 不記錄歷史、不發出通知的內部方法修改圖表，由 DiagramModel 統一通知
+ * 復原與重做依照堆疊順序進行，執行時圖表一定處於操作剛完成（或剛復原）時的狀態
+ */
+sealed interface EditCommand {
+    // 估計記憶體用量使用的大小（64 位元 JVM 的概略值）
+    long OBJECT_BYTES = 16; // 物件標頭
+    long REFERENCE_BYTES = 8; // 參考
+    long ARRAY_BYTES = 16; // 陣列標頭
+
+    // 復原這個操作
+    void undo(DiagramModel model);
+
+    // 重做這個操作
+    void redo(DiagramModel model);
+
+    // 估計這筆紀錄佔用的記憶體（位元組），用於限制歷史紀錄的總大小
+    long estimatedBytes();
+
+    /**
+     * 取得連線目前的端點座標，每條連線 4 個整數：起點 x、y，終點 x、y
+     * @param links 連線
+     * @return 座標陣列
+     */
+    static int[] ports(Link[] links) {
+        int[] ports = new int[links.length * 4];
+        for (int i = 0; i < links.length; i++) {
+            ports[i * 4] = links[i].getStartPort().x;
+            ports[i * 4 + 1] = links[i].getStartPort().y;
+            ports[i * 4 + 2] = links[i].getEndPort().x;
+            ports[i * 4 + 3] = links[i].getEndPort().y;
+        }
+        return ports;
+    }
+
+    /**
+     * 新增圖形
+     * @param shape 新增的圖形
+     * @param sequence 圖形在 ZOrderStore 中的序號，重做時放回相同的上下位置
+     */
+    record AddShape(Shape shape, long sequence) implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.removeShape(shape);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.insertShape(shape, sequence);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + REFERENCE_BYTES + 8;
+        }
+    }
+
+    /**
+     * 新增連線
+     * @param link 新增的連線
+     */
+    record AddLink(Link link) implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.removeLink(link);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.insertLink(link);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + REFERENCE_BYTES;
+        }
+    }
+
+    /**
+     * 移動頂層圖形；同一次拖曳的連續移動合併成一筆
+     * @param shape 移動的圖形
+     * @param dx, dy 位移量
+     * @param links 受影響的連線
+     * @param portsBefore, portsAfter 移動前後連線的端點座標（見 ports）
+     */
+    record Move(Shape shape, int dx, int dy, Link[] links, int[] portsBefore, int[] portsAfter) implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.translate(shape, -dx, -dy, links, portsBefore);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.translate(shape, dx, dy, links, portsAfter);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + 3 * REFERENCE_BYTES + 8 + 3 * ARRAY_BYTES
+                    + links.length * (REFERENCE_BYTES + 2 * 16);
+        }
+
+        /**
+         * 與緊接在後的移動合併
+         * 拖曳期間受影響的連線不會改變，合併後保留第一次移動前與最後一次移動後的端點座標
+         * @param next 下一筆移動
+         * @return 合併後的紀錄；不是同一個圖形時返回 null
+         */
+        Move mergeWith(Move next) {
+            if (next.shape != shape || next.links.length != links.length) {
+                return null;
+            }
+            return new Move(shape, dx + next.dx, dy + next.dy, links, portsBefore, next.portsAfter);
+        }
+    }
+
+    /**
+     * 以相同位移量移動多個頂層圖形（拖曳多重選取）；同一次拖曳的連續移動合併成一筆
+     * @param shapes 移動的圖形
+     * @param dx, dy 位移量
+     * @param links 所有圖形受影響連線的聯集
+     * @param portsBefore, portsAfter 移動前後連線的端點座標（見 ports）
+     */
+    record MoveShapes(Shape[] shapes, int dx, int dy, Link[] links, int[] portsBefore, int[] portsAfter)
+            implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.translate(shapes, -dx, -dy, links, portsBefore);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.translate(shapes, dx, dy, links, portsAfter);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + 4 * REFERENCE_BYTES + 8 + 4 * ARRAY_BYTES
+                    + shapes.length * REFERENCE_BYTES + links.length * (REFERENCE_BYTES + 2 * 16);
+        }
+
+        /**
+         * 與緊接在後的移動合併；拖曳期間使用同一個圖形陣列
+         * @param next 下一筆移動
+         * @return 合併後的紀錄；不是同一組圖形時返回 null
+         */
+        MoveShapes mergeWith(MoveShapes next) {
+            if (next.shapes != shapes || next.links.length != links.length) {
+                return null;
+            }
+            return new MoveShapes(shapes, dx + next.dx, dy + next.dy, links, portsBefore, next.portsAfter);
+        }
+    }
+
+    /**
+     * 交易中的多個操作，作為一筆復原
+     * 交易中移動圖形時連線端點延到提交才計算，所以各筆 Move 記錄的「移動後」端點不是最終位置；
+     * 復原時倒序執行，每條連線最後由第一個碰到它的操作恢復成交易前的端點；重做後再重新計算交易提交時計算的連線
+     * @param commands 依執行順序的操作
+     * @param updatedLinks 提交時重新計算端點的連線
+     */
+    record Batch(EditCommand[] commands, Link[] updatedLinks) implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            for (int i = commands.length - 1; i >= 0; i--) {
+                commands[i].undo(model);
+            }
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            for (EditCommand command : commands) {
+                command.redo(model);
+            }
+            model.updatePorts(updatedLinks);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            long bytes = OBJECT_BYTES + 2 * REFERENCE_BYTES + 2 * ARRAY_BYTES
+                    + (long) (commands.length + updatedLinks.length) * REFERENCE_BYTES;
+            for (EditCommand command : commands) {
+                bytes += command.estimatedBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 修改標籤樣式
+     * @param shape 頂層圖形
+     * @param before, after 修改前後的樣式
+     */
+    record ChangeLabel(Shape shape, LabelStyle before, LabelStyle after) implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.applyLabelStyle(shape, before);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.applyLabelStyle(shape, after);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            // 標籤文字可能是新字串，以字元數估計
+            int textLength = (before.text() == null ? 0 : before.text().length())
+                    + (after.text() == null ? 0 : after.text().length());
+            return OBJECT_BYTES + 3 * REFERENCE_BYTES + 2 * (OBJECT_BYTES + 16) + 2 * ARRAY_BYTES + textLength;
+        }
+    }
+
+    /**
+     * 組合圖形
+     * @param composite 新的複合圖形
+     * @param compositeSequence 複合圖形的序號
+     * @param children 被組合的圖形
+     * @param childSequences 子圖形組合前的序號，復原時放回原本的上下位置
+     */
+    record Group(Composite composite, long compositeSequence, Shape[] children, long[] childSequences)
+            implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            model.detachChildren(composite, children, childSequences);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.attachChildren(composite, compositeSequence, children);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + 3 * REFERENCE_BYTES + 8 + 2 * ARRAY_BYTES + children.length * (REFERENCE_BYTES + 8);
+        }
+    }
+
+    /**
+     * 解散複合圖形，連到組合的連線改接到最接近的子圖形
+     * @param composite 被解散的複合圖形
+     * @param compositeSequence 複合圖形原本的序號
+     * @param children 子圖形
+     * @param childSequences 子圖形放回最上層後的序號
+     * @param links 原本連到組合的連線
+     * @param startChildren, endChildren 每條連線的起點/終點改接的子圖形，沒有改接時為 null
+     * @param portsBefore, portsAfter 解散前後連線的端點座標
+     */
+    record Ungroup(Composite composite, long compositeSequence, Shape[] children, long[] childSequences,
+                   Link[] links, Shape[] startChildren, Shape[] endChildren, int[] portsBefore, int[] portsAfter)
+            implements EditCommand {
+        @Override
+        public void undo(DiagramModel model) {
+            for (int i = 0; i < links.length; i++) {
+                model.reattachLink(links[i], startChildren[i] != null ? composite : null,
+                        endChildren[i] != null ? composite : null);
+            }
+            model.setPorts(links, portsBefore);
+            model.attachChildren(composite, compositeSequence, children);
+        }
+
+        @Override
+        public void redo(DiagramModel model) {
+            model.detachChildren(composite, children, childSequences);
+            for (int i = 0; i < links.length; i++) {
+                model.reattachLink(links[i], startChildren[i], endChildren[i]);
+            }
+            model.setPorts(links, portsAfter);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return OBJECT_BYTES + 8 * REFERENCE_BYTES + 8 + 6 * ARRAY_BYTES
+                    + children.length * (REFERENCE_BYTES + 8) + links.length * (3 * REFERENCE_BYTES + 2 * 16);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package workflow;
+
+// 導入 JDK Flight Recorder 事件相關類別
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * EditorEvents 類別：編輯器的 JDK Flight Recorder 自訂事件
+ * 以 java -XX:StartFlightRecording:filename=editor.jfr 或 jcmd &lt;pid&gt; JFR.start 錄製，
+ * 在 JDK Mission Control 的「Workflow Editor」分類下可以看到繪製、滑鼠處理、連線更新與組合/解散各自花費的時間
+ * 沒有錄製時 shouldCommit() 直接返回 false，事件物件不會逃出方法，JIT 會省略配置，額外成本可以忽略
+ * 使用方式：
+ *   EditorEvents.Paint event = new EditorEvents.Paint();
+ *   event.begin();
+ *   ...
+ *   if (event.shouldCommit()) { 填入欄位; event.commit(); }
+ */
+final class EditorEvents {
+    private EditorEvents() {
+        // 只用來集中事件類別
+    }
+
+    @Name("workflow.Paint")
+    @Label("Canvas Paint")
+    @Category("Workflow Editor")
+    @Description("One Canvas.paintComponent call")
+    static final class Paint extends Event {
+        @Label("Shapes Drawn")
+        int shapesDrawn;
+
+        @Label("Links Drawn")
+        int linksDrawn;
+
+        @Label("Clip Area")
+        @Description("Repainted screen area in pixels")
+        long clipArea;
+
+        @Label("From Drag Layer")
+        @Description("Frame composed from the cached static layer")
+        boolean fromDragLayer;
+
+        @Label("Input Latency")
+        @Description("Time from the first input handled since the previous paint until this paint finished, -1 if none")
+        @Timespan(Timespan.NANOSECONDS)
+        long inputLatency;
+    }
+
+    @Name("workflow.MouseInput")
+    @Label("Mouse Input")
+    @Category("Workflow Editor")
+    @Description("One Canvas mouse handler call")
+    static final class MouseInput extends Event {
+        @Label("Action")
+        String action;
+
+        @Label("Mode")
+        String mode;
+    }
+
+    @Name("workflow.LinkUpdate")
+    @Label("Link Update")
+    @Category("Workflow Editor")
+    @Description("Moving a shape and recomputing the ports of its incident links")
+    static final class LinkUpdate extends Event {
+        @Label("Links")
+        int links;
+    }
+
+    @Name("workflow.Group")
+    @Label("Group / Ungroup")
+    @Category("Workflow Editor")
+    @Description("Grouping selected shapes or ungrouping a composite")
+    static final class Group extends Event {
+        @Label("Ungroup")
+        boolean ungroup;
+
+        @Label("Shapes")
+        @Description("Shapes grouped, or children released by ungroup")
+        int shapes;
+
+        @Label("Links")
+        @Description("Links re-attached to children by ungroup")
+        int links;
+    }
+}
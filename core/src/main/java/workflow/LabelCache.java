@@ -0,0 +1,233 @@
+package workflow;
+
+// 導入必要的 Java AWT 和集合類別
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LabelCache 類別：標籤排版結果的快取
+ * 以「文字、字型大小、標籤顏色、標籤形狀」作為鍵，保存量測後的尺寸、字型物件以及（可選的）預先繪製好的標籤影像，
+ * 相同樣式的標籤（例如大量預設的 "Rect1"）只需要量測與建立字型一次
+ * 以 LinkedHashMap 的存取順序實作 LRU，超過上限時淘汰最久沒有使用的項目；
+ * 被淘汰的排版只釋放影像並標記為已淘汰，不會再建立影像；量測結果仍然有效，圖形繼續使用手上的排版並以向量方式繪製，
+ * 可見的標籤樣式比上限多時不會每次繪製都重新量測，預先繪製的影像總數也不超過 setMaxEntries 的上限
+ * 所有方法都已同步，批次輸出等背景執行緒也可以安全使用
+ */
+final class LabelCache {
+    private static final int DEFAULT_MAX_ENTRIES = 1024; // 預設最多保留的排版數量
+    private static final int MAX_IMAGE_PIXELS = 512 * 128; // 超過這個面積的標籤不預先繪製成影像
+
+    // 用於量測文字尺寸的共用圖形環境，不需要實際的視窗
+    private static final Graphics2D MEASURE_GRAPHICS = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+    private static volatile boolean prerenderEnabled = true; // 是否使用預先繪製的標籤影像
+    private static long hits = 0; // 快取命中次數
+    private static long misses = 0; // 快取未命中次數
+
+    // accessOrder = true：每次取用都會移到最後，最前面的就是最久沒用的項目
+    private static final LinkedHashMap<Key, Layout> CACHE = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+            if (size() > maxEntries) {
+                eldest.getValue().flush();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // 繪圖環境的提示：目前的轉換沒有縮放或旋轉，可以直接貼上預先繪製的標籤影像
+    // 由繪製整個畫面的呼叫端以 preparePaint 每次繪製設定一次，不必每個標籤都取得轉換矩陣
+    private static final RenderingHints.Key UNSCALED_KEY = new RenderingHints.Key(0) {
+        @Override
+        public boolean isCompatibleValue(Object value) {
+            return value instanceof Boolean;
+        }
+    };
+
+    private LabelCache() {
+        // 只提供靜態方法
+    }
+
+    // 快取的鍵：決定標籤外觀的所有屬性
+    private record Key(String text, int fontSize, int rgb, boolean rectLabel) {
+    }
+
+    /**
+     * 標籤的排版結果，所有座標都相對於標籤背景的左上角
+     */
+    static final class Layout {
+        final String text; // 標籤文字
+        final Color color; // 標籤背景顏色
+        final boolean rectLabel; // 矩形或橢圓形背景
+        final Font boldFont; // 繪製文字用的粗體字型
+        final int labelWidth; // 標籤背景寬度（文字寬度 + 20）
+        final int labelHeight; // 標籤背景高度（文字高度 + 10）
+        final int textX; // 文字基準線起點 X
+        final int textY; // 文字基準線 Y
+        final int extentWidth; // 實際繪製寬度：粗體文字比一般字體寬時可能超出背景
+        private BufferedImage image; // 預先繪製好的標籤影像，需要時才建立
+        private boolean imageUnavailable = false; // 標籤太大，不建立影像
+        private volatile boolean evicted = false; // 已從快取淘汰，不再建立影像
+
+        private Layout(Key key) {
+            this.text = key.text();
+            this.color = new Color(key.rgb(), true);
+            this.rectLabel = key.rectLabel();
+            this.boldFont = new Font("Arial", Font.BOLD, key.fontSize());
+            // 以一般字體量測文字尺寸並置中，與原本的 drawLabel 相同
+            FontMetrics metrics = MEASURE_GRAPHICS.getFontMetrics(new Font("Arial", Font.PLAIN, key.fontSize()));
+            int textWidth = metrics.stringWidth(text);
+            int textHeight = metrics.getHeight();
+            this.labelWidth = textWidth + 20;
+            this.labelHeight = textHeight + 10;
+            this.textX = (labelWidth - textWidth) / 2;
+            this.textY = (labelHeight - textHeight) / 2 + metrics.getAscent();
+            int boldWidth = MEASURE_GRAPHICS.getFontMetrics(boldFont).stringWidth(text);
+            this.extentWidth = Math.max(labelWidth, textX + boldWidth);
+        }
+
+        /**
+         * 以向量方式繪製標籤
+         * @param g 繪圖環境
+         * @param labelX, labelY 標籤背景左上角座標
+         */
+        void draw(Graphics g, int labelX, int labelY) {
+            drawBackground(g, labelX, labelY);
+            // 文字為黑色粗體
+            g.setColor(Color.BLACK);
+            g.setFont(boldFont);
+            g.drawString(text, labelX + textX, labelY + textY);
+        }
+
+        /**
+         * 只繪製標籤背景，縮小檢視時文字已無法辨識
+         * @param g 繪圖環境
+         * @param labelX, labelY 標籤背景左上角座標
+         */
+        void drawBackground(Graphics g, int labelX, int labelY) {
+            g.setColor(color);
+            // 根據標籤形狀繪製矩形或橢圓形背景
+            if (rectLabel) {
+                g.fillRect(labelX, labelY, labelWidth, labelHeight);
+            } else {
+                g.fillOval(labelX, labelY, labelWidth, labelHeight);
+            }
+        }
+
+        // 檢查是否已從快取淘汰；淘汰後的排版仍可繪製，只是不再有預先繪製的影像
+        boolean isEvicted() {
+            return evicted;
+        }
+
+        // 取得預先繪製好的標籤影像，第一次使用時建立；標籤太大或已被淘汰時返回 null
+        synchronized BufferedImage getImage() {
+            if (image == null && !imageUnavailable && !evicted) {
+                if (extentWidth * (labelHeight + 1) > MAX_IMAGE_PIXELS) {
+                    imageUnavailable = true;
+                    return null;
+                }
+                BufferedImage rendered = new BufferedImage(extentWidth, labelHeight + 1, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g2d = rendered.createGraphics();
+                draw(g2d, 0, 0);
+                g2d.dispose();
+                image = rendered;
+            }
+            return image;
+        }
+
+        // 從快取淘汰：釋放影像資源，之後不再建立影像
+        private synchronized void flush() {
+            evicted = true;
+            if (image != null) {
+                image.flush();
+                image = null;
+            }
+        }
+    }
+
+    /**
+     * 取得指定樣式的標籤排版，沒有快取時量測並加入快取
+     * @return 排版結果，同樣式的標籤共用同一個物件
+     */
+    static synchronized Layout get(String text, int fontSize, Color color, boolean rectLabel) {
+        Key key = new Key(text, fontSize, color.getRGB(), rectLabel);
+        Layout layout = CACHE.get(key);
+        if (layout != null) {
+            hits++;
+            return layout;
+        }
+        misses++;
+        layout = new Layout(key);
+        CACHE.put(key, layout);
+        return layout;
+    }
+
+    /**
+     * 設定快取最多保留的排版數量，超過時立即淘汰最久沒用的項目
+     * @param entries 上限，必須大於 0
+     */
+    static synchronized void setMaxEntries(int entries) {
+        if (entries <= 0) {
+            throw new IllegalArgumentException("entries must be positive: " + entries);
+        }
+        maxEntries = entries;
+        Iterator<Layout> iterator = CACHE.values().iterator();
+        while (CACHE.size() > maxEntries && iterator.hasNext()) {
+            iterator.next().flush();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 每次繪製前呼叫一次：記錄繪圖環境目前的轉換是否沒有縮放或旋轉，
+     * 之後以這個繪圖環境（或它 create 出的複本）繪製的標籤才會使用預先繪製的影像
+     * @param g2d 已套用最終轉換的繪圖環境
+     */
+    static void preparePaint(Graphics2D g2d) {
+        int type = g2d.getTransform().getType();
+        g2d.setRenderingHint(UNSCALED_KEY, (type & ~java.awt.geom.AffineTransform.TYPE_TRANSLATION) == 0);
+    }
+
+    // 檢查 preparePaint 是否記錄為沒有縮放；沒有呼叫過 preparePaint 時視為有縮放，以向量方式繪製
+    static boolean isUnscaled(Graphics g) {
+        return g instanceof Graphics2D g2d && g2d.getRenderingHint(UNSCALED_KEY) == Boolean.TRUE;
+    }
+
+    // 設定是否使用預先繪製的標籤影像
+    static void setPrerenderEnabled(boolean enabled) {
+        prerenderEnabled = enabled;
+    }
+
+    // 檢查是否使用預先繪製的標籤影像
+    static boolean isPrerenderEnabled() {
+        return prerenderEnabled;
+    }
+
+    // 取得目前快取的排版數量
+    static synchronized int size() {
+        return CACHE.size();
+    }
+
+    // 取得快取命中次數
+    static synchronized long getHits() {
+        return hits;
+    }
+
+    // 取得快取未命中次數
+    static synchronized long getMisses() {
+        return misses;
+    }
+
+    // 清除所有快取
+    static synchronized void clear() {
+        for (Layout layout : CACHE.values()) {
+            layout.flush();
+        }
+        CACHE.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package workflow;
+
+// 導入必要的 Java AWT 類別
+import java.awt.Color;
+
+/**
+ * LabelStyle 記錄：圖形標籤的所有外觀屬性，用於記錄標籤修改前後的狀態
+ * @param text 標籤文字
+ * @param color 標籤背景顏色
+ * @param fontSize 字型大小
+ * @param rectLabel 矩形（true）或橢圓形（false）背景
+ */
+record LabelStyle(String text, Color color, int fontSize, boolean rectLabel) {
+    /**
+     * 取得圖形目前的標籤樣式
+     * @param shape 圖形
+     * @return 標籤樣式
+     */
+    static LabelStyle of(Shape shape) {
+        return new LabelStyle(shape.getLabelText(), shape.getLabelColor(), shape.getFontSize(), shape.isRectLabel());
+    }
+
+    /**
+     * 將樣式套用到圖形
+     * @param shape 圖形
+     */
+    void applyTo(Shape shape) {
+        shape.setLabelText(text);
+        shape.setLabelColor(color);
+        shape.setFontSize(fontSize);
+        shape.setRectLabel(rectLabel);
+    }
+}
@@ -1,13 +1,8 @@
+package workflow;
+
 import java.awt.*;
+import java.awt.geom.Path2D;
 
-/**
- * 定義連線的類型枚舉
- */
-enum LinkType {
-    ASSOCIATION, // 箭頭
-    GENERALIZATION, // 大箭頭
-    COMPOSITION // 菱形箭頭
-}  
 // Link 類別用於表示圖形之間的連線
 class Link {
     private Shape startShape;// 連線的起始圖形
@@ -16,12 +11,18 @@ class Link {
     private Point endPort;// 連線的終點連接點
     private LinkType type; // 連線的類型（關聯、繼承、組合）
 
+    // LinkCollector 收集連線時使用的標記，避免同一條連線在一次移動中被重複處理
+    int visitMark = 0;
+
+    // 箭頭超出終點的最大距離（菱形箭頭約 19 像素），用於計算連線的繪製範圍
+    private static final int ARROW_MARGIN = 21;
+
     // 建構子：初始化連線的所有屬性
     public Link(Shape startShape, Point startPort, Shape endShape, Point endPort, LinkType type) {
         this.startShape = startShape;
-        this.startPort = startPort;
+        this.startPort = new Point(startPort); // 複製一份，之後更新連接點時直接修改座標
         this.endShape = endShape;
-        this.endPort = endPort;
+        this.endPort = new Point(endPort);
         this.type = type;
     }
 
@@ -44,29 +45,75 @@ class Link {
         }
     }
 
+    /**
+     * 依細節層級繪製連線
+     * 縮小檢視時箭頭只剩一兩個像素，REDUCED 與 MINIMAL 層級只畫直線，省下三角函數計算
+     * @param g Graphics 物件用於繪圖
+     * @param level 細節層級
+     */
+    public void draw(Graphics g, DetailLevel level) {
+        if (level == DetailLevel.FULL) {
+            draw(g);
+            return;
+        }
+        g.setColor(Color.BLACK);
+        g.drawLine(startPort.x, startPort.y, endPort.x, endPort.y);
+    }
+
+    /**
+     * 將連線加入折線路徑，最簡層級由畫布把所有連線合併成一條路徑一次繪製
+     * @param path 要加入的路徑
+     */
+    public void appendTo(Path2D path) {
+        path.moveTo(startPort.x, startPort.y);
+        path.lineTo(endPort.x, endPort.y);
+    }
+
     // 更新連線的連接點位置
+    // 以連接點編號取得座標並直接寫回原本的 Point，拖曳時不會建立任何物件
     public void updatePorts() {
-        // 更新起始連接點
+        // 更新起始連接點：無論是組合圖形還是一般圖形，都取得最近的連接點
         if (startShape != null) {
-            // 無論是組合圖形還是一般圖形，都取得最近的連接點
-            if (startShape instanceof Composite) {
-                startPort = startShape.getClosestPort(startPort.x, startPort.y);
-            } else {
-                startPort = startShape.getClosestPort(startPort.x, startPort.y);
+            int index = startShape.getClosestPortIndex(startPort.x, startPort.y);
+            if (index >= 0) {
+                startPort.setLocation(startShape.getPortX(index), startShape.getPortY(index));
             }
         }
     
         // 更新終點連接點
         if (endShape != null) {
-            // 無論是組合圖形還是一般圖形，都取得最近的連接點
-            if (endShape instanceof Composite) {
-                endPort = endShape.getClosestPort(endPort.x, endPort.y);
-            } else {
-                endPort = endShape.getClosestPort(endPort.x, endPort.y);
+            int index = endShape.getClosestPortIndex(endPort.x, endPort.y);
+            if (index >= 0) {
+                endPort.setLocation(endShape.getPortX(index), endShape.getPortY(index));
             }
         }
     }
 
+    // 取得連線（含箭頭）在畫布上佔用的範圍，用於局部重繪
+    public Rectangle getBounds() {
+        int minX = Math.min(startPort.x, endPort.x);
+        int minY = Math.min(startPort.y, endPort.y);
+        int maxX = Math.max(startPort.x, endPort.x);
+        int maxY = Math.max(startPort.y, endPort.y);
+        return new Rectangle(minX - ARROW_MARGIN, minY - ARROW_MARGIN,
+                maxX - minX + ARROW_MARGIN * 2, maxY - minY + ARROW_MARGIN * 2);
+    }
+
+    // 將連線的範圍（與 getBounds() 相同）合併到指定矩形，不建立新物件，供拖曳時累積變動範圍
+    public void addBoundsTo(Rectangle rect) {
+        rect.add(Math.min(startPort.x, endPort.x) - ARROW_MARGIN, Math.min(startPort.y, endPort.y) - ARROW_MARGIN);
+        rect.add(Math.max(startPort.x, endPort.x) + ARROW_MARGIN, Math.max(startPort.y, endPort.y) + ARROW_MARGIN);
+    }
+
+    // 檢查連線的繪製範圍是否與指定矩形相交，不建立新物件，供繪製時快速裁切
+    public boolean intersects(Rectangle rect) {
+        int minX = Math.min(startPort.x, endPort.x) - ARROW_MARGIN;
+        int minY = Math.min(startPort.y, endPort.y) - ARROW_MARGIN;
+        int maxX = Math.max(startPort.x, endPort.x) + ARROW_MARGIN;
+        int maxY = Math.max(startPort.y, endPort.y) + ARROW_MARGIN;
+        return rect.x < maxX && rect.x + rect.width > minX && rect.y < maxY && rect.y + rect.height > minY;
+    }
+
     // 設定起始圖形
     public void setStartShape(Shape startShape) {
         this.startShape = startShape;
@@ -87,6 +134,11 @@ class Link {
         return endShape;
     }
     
+    // 取得連線類型
+    public LinkType getType() {
+        return type;
+    }
+
     // 取得起始連接點
     public Point getStartPort() {
         return startPort;
@@ -0,0 +1,81 @@
+package workflow;
+
+// 導入必要的集合類別
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LinkCollector 類別：收集一個圖形（含組合內所有子圖形）相關的連線，每條連線只收集一次
+ * 透過每個圖形自己的連線列表（圖形到連線的鄰接索引）走訪，不必掃描畫布上的全部連線，
+ * 成本只與被移動子樹的連線數量有關
+ * 兩端都在同一個組合內的連線會從兩個子圖形各被走到一次，以連線上的標記去除重複
+ * 收集結果的列表會重複使用，拖曳時不會產生垃圾物件
+ * 每個 DiagramModel 擁有自己的收集器，標記值只在同一個模型內遞增；從其他模型移入的連線要先以 resetMark 清除標記
+ */
+class LinkCollector {
+    private int nextMark = 0; // 每次收集使用新的標記值，不必清除連線上舊的標記；每個模型各自一個收集器，不與其他模型共用
+
+    private final List<Link> collected = new ArrayList<>(); // 最近一次收集的結果
+    private int mark; // 本次收集使用的標記值
+
+    /**
+     * 收集與圖形相關的所有連線
+     * @param shape 圖形（組合會遞迴收集子圖形的連線）
+     * @return 不重複的連線列表，內容在下一次收集時會被覆蓋
+     */
+    public List<Link> collect(Shape shape) {
+        collected.clear();
+        mark = ++nextMark;
+        addLinks(shape);
+        return collected;
+    }
+
+    /**
+     * 收集與多個圖形相關的所有連線（聯集），兩端都在這些圖形中的連線只收集一次
+     * @param shapes 圖形
+     * @return 不重複的連線列表，內容在下一次收集時會被覆蓋
+     */
+    public List<Link> collect(Shape[] shapes) {
+        collected.clear();
+        mark = ++nextMark;
+        for (Shape shape : shapes) {
+            addLinks(shape);
+        }
+        return collected;
+    }
+
+    // 清除連線上其他收集器留下的標記（0 不會被當成標記值使用）
+    static void resetMark(Link link) {
+        link.visitMark = 0;
+    }
+
+    // 取得最近一次收集的結果
+    public List<Link> getCollected() {
+        return collected;
+    }
+
+    // 重新計算最近一次收集到的每條連線的連接點，每條只計算一次
+    public void updatePorts() {
+        for (int i = 0; i < collected.size(); i++) {
+            collected.get(i).updatePorts();
+        }
+    }
+
+    // 遞迴加入圖形及其子圖形的連線，已標記的連線略過
+    private void addLinks(Shape shape) {
+        List<Link> links = shape.getLinks();
+        for (int i = 0; i < links.size(); i++) {
+            Link link = links.get(i);
+            if (link.visitMark != mark) {
+                link.visitMark = mark;
+                collected.add(link);
+            }
+        }
+        if (shape instanceof Composite) {
+            List<Shape> children = ((Composite) shape).getChildShapes();
+            for (int i = 0; i < children.size(); i++) {
+                addLinks(children.get(i));
+            }
+        }
+    }
+}
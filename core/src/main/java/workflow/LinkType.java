@@ -0,0 +1,10 @@
+package workflow;
+
+/**
+ * 定義連線的類型枚舉
+ */
+enum LinkType {
+    ASSOCIATION, // 箭頭
+    GENERALIZATION, // 大箭頭
+    COMPOSITION // 菱形箭頭
+}
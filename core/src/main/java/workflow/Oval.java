@@ -1,7 +1,7 @@
+package workflow;
+
 // 導入必要的 Java AWT 和集合類別
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
 // Oval 類別繼承自 Shape 類別，用於繪製橢圓形
 class Oval extends Shape {
@@ -9,6 +9,10 @@ class Oval extends Shape {
     private static final int WIDTH = 100; //寬度為 100 像素
     private static final int HEIGHT = 50; //高度為 50 像素
 
+    // 四個連接點相對於左上角的位移表，順序：中上、左中、右中、中下
+    private static final int[] PORT_DX = {WIDTH / 2, 0, WIDTH, WIDTH / 2};
+    private static final int[] PORT_DY = {0, HEIGHT / 2, HEIGHT / 2, HEIGHT};
+
     // 建構子：初始化橢圓形的位置
     public Oval(int x, int y) {
         // 呼叫父類別建構子，設定位置和深度值
@@ -20,12 +24,27 @@ class Oval extends Shape {
     // 覆寫父類別的繪製方法
     @Override
     public void draw(Graphics g, boolean isSelected) {
+        draw(g, isSelected, DetailLevel.FULL);
+    }
+
+    // 依細節層級繪製橢圓形
+    @Override
+    public void draw(Graphics g, boolean isSelected, DetailLevel level) {
+        if (level == DetailLevel.MINIMAL) {
+            // 最簡層級畫成實心方塊，以黑色表示選取
+            g.setColor(isSelected ? Color.BLACK : Color.GRAY);
+            g.fillRect(x, y, WIDTH, HEIGHT);
+            return;
+        }
         // 設定填充顏色為灰色
         g.setColor(Color.GRAY);
         g.fillOval(x, y, WIDTH, HEIGHT); // 繪製填充橢圓形
 
-        // 如果被選取，則繪製port
-        if (isSelected) {
+        if (isSelected && level == DetailLevel.REDUCED) {
+            // 連接埠方塊太小，改畫外框表示選取
+            g.setColor(Color.BLACK);
+            g.drawOval(x, y, WIDTH, HEIGHT);
+        } else if (isSelected) { // 如果被選取，則繪製port
             g.setColor(Color.BLACK); 
             g.fillRect(x+45, y-5, 10, 10);//上port
             g.fillRect(x+45, y+45, 10, 10);//下port
@@ -34,7 +53,7 @@ class Oval extends Shape {
         }
 
         // 繪製標籤文字
-        drawLabel(g);
+        drawLabel(g, level);
     }
 
     // 取得橢圓形寬度的方法
@@ -58,18 +77,22 @@ class Oval extends Shape {
         return mouseX >= x && mouseX <= x + WIDTH && mouseY >= y && mouseY <= y + HEIGHT;
     }
 
-    // 取得橢圓形的連接點（用於連線）
+    // 取得橢圓形的連接點數量（用於連線）
     @Override
-    public List<Point> getConnectionPorts() {
-        // 建立一個新的連接點清單
-        List<Point> ports = new ArrayList<>();
+    public int getPortCount() {
+        return PORT_DX.length;
+    }
 
-        // 依序加入四個連接點：
-        ports.add(new Point(x + WIDTH / 2, y)); // Top-center
-        ports.add(new Point(x, y + HEIGHT / 2)); // Left-center
-        ports.add(new Point(x + WIDTH, y + HEIGHT / 2)); // Right-center
-        ports.add(new Point(x + WIDTH / 2, y + HEIGHT)); // Bottom-center
-        return ports;
+    // 由位移表計算連接點的 X 座標
+    @Override
+    public int getPortX(int index) {
+        return x + PORT_DX[index];
+    }
+
+    // 由位移表計算連接點的 Y 座標
+    @Override
+    public int getPortY(int index) {
+        return y + PORT_DY[index];
     }
 
     // 取得邊界範圍
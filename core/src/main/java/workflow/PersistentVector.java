@@ -0,0 +1,167 @@
+package workflow;
+
+// 導入必要的工具類別
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * PersistentVector 類別：不可變、結構共享的向量（32 叉字典樹）
+ * set 不修改原本的向量，而是只複製從根到該元素的路徑（約 log32(n) 個節點），其餘節點與舊版本共用
+ * 因此每個版本都可以安全地交給其他執行緒讀取，不需要鎖定，也不需要整份複製
+ * @param <T> 元素型別
+ */
+final class PersistentVector<T> {
+    private static final int BITS = 5; // 每層使用的索引位元數
+    private static final int WIDTH = 1 << BITS; // 每個節點的子節點數量
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[WIDTH]);
+
+    private final int size; // 元素數量
+    private final int shift; // 根節點所在層的位移量，0 表示根節點就是葉節點
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    // 取得空向量
+    @SuppressWarnings("unchecked")
+    static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    // 元素數量
+    int size() {
+        return size;
+    }
+
+    /**
+     * 取得指定位置的元素
+     * @param index 位置
+     * @return 元素，可能為 null
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        Objects.checkIndex(index, size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (T) node[index & MASK];
+    }
+
+    /**
+     * 產生指定位置換成新元素的新版本，原本的向量不變
+     * @param index 位置，等於 size() 時加在尾端
+     * @param value 新元素，可為 null
+     * @return 新版本
+     */
+    PersistentVector<T> set(int index, T value) {
+        Objects.checkIndex(index, size + 1);
+        Object[] newRoot = root;
+        int newShift = shift;
+        if (index == 1 << (shift + BITS)) {
+            // 目前的樹已滿，加高一層
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newShift += BITS;
+        }
+        return new PersistentVector<>(Math.max(size, index + 1), newShift, assoc(newRoot, newShift, index, value));
+    }
+
+    /**
+     * 依位置順序走訪所有元素（包含 null）
+     * @param action 對每個元素執行的動作
+     */
+    void forEach(Consumer<? super T> action) {
+        forEach(root, shift, size, action);
+    }
+
+    // 接收 diff 結果的介面
+    interface IndexedConsumer<T> {
+        void accept(int index, T value);
+    }
+
+    /**
+     * 找出與舊版本不同的元素：兩個版本共用的節點直接跳過，所以成本與改變的元素數量成正比
+     * 舊版本有、這個版本沒有（或為 null）的位置以 null 回報
+     * @param previous 舊版本
+     * @param action 對每個不同的位置與新元素執行的動作
+     */
+    void diff(PersistentVector<T> previous, IndexedConsumer<? super T> action) {
+        if (previous.shift > shift || previous.size > size) {
+            // 不是由舊版本延伸而來（例如整份重建），逐一比較
+            for (int i = 0; i < Math.max(size, previous.size); i++) {
+                T value = i < size ? get(i) : null;
+                if (value != (i < previous.size ? previous.get(i) : null)) {
+                    action.accept(i, value);
+                }
+            }
+            return;
+        }
+        // 樹只會往上長高：舊的根節點對應新樹最左邊的子樹，其他子樹都是新加入的元素
+        Object[] node = root;
+        int level = shift;
+        while (level > previous.shift) {
+            for (int i = 1; i < WIDTH && (i << level) < size; i++) {
+                diff((Object[]) node[i], null, level - BITS, i << level, size, action);
+            }
+            node = (Object[]) node[0];
+            level -= BITS;
+        }
+        diff(node, previous.root, level, 0, size, action);
+    }
+
+    // 比較同一層、同一位置的兩個節點
+    @SuppressWarnings("unchecked")
+    private static <T> void diff(Object[] node, Object[] old, int level, int base, int size,
+                                 IndexedConsumer<? super T> action) {
+        if (node == old) {
+            return;
+        }
+        for (int i = 0; i < WIDTH; i++) {
+            int index = base + (i << level);
+            if (index >= size) {
+                break;
+            }
+            Object child = node[i];
+            Object oldChild = old == null ? null : old[i];
+            if (level == 0) {
+                if (child != oldChild) {
+                    action.accept(index, (T) child);
+                }
+            } else {
+                diff((Object[]) child, (Object[]) oldChild, level - BITS, index, size, action);
+            }
+        }
+    }
+
+    // 複製路徑上的節點並放入新元素
+    private static Object[] assoc(Object[] node, int level, int index, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int slot = (index >>> level) & MASK;
+            copy[slot] = assoc((Object[]) copy[slot], level - BITS, index, value);
+        }
+        return copy;
+    }
+
+    // 走訪節點底下的前 remaining 個元素，返回實際走訪的數量
+    @SuppressWarnings("unchecked")
+    private static <T> int forEach(Object[] node, int level, int remaining, Consumer<? super T> action) {
+        int visited = 0;
+        for (int i = 0; i < WIDTH && visited < remaining; i++) {
+            if (level == 0) {
+                action.accept((T) node[i]);
+                visited++;
+            } else {
+                visited += forEach((Object[]) node[i], level - BITS, remaining - visited, action);
+            }
+        }
+        return visited;
+    }
+}
@@ -0,0 +1,170 @@
+package workflow;
+
+// 導入串流輸出與壓縮相關類別
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngStreamWriter 類別：逐列寫出 PNG 圖片（8 位元 RGB），不需要把整張圖片放在記憶體中
+ * ImageIO 只能輸出完整的 RenderedImage，超大圖片無法一次配置；這裡每寫入一列就立即壓縮輸出，
+ * 記憶體用量只有一列像素與壓縮器的緩衝區
+ * 壓縮後的資料每累積 64KB 就輸出成一個 IDAT 區塊
+ */
+class PngStreamWriter implements AutoCloseable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_SIZE = 1 << 16; // 每個 IDAT 區塊的最大資料量
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final byte[] rowBytes; // 一列的資料：濾波類型 1 位元組 + 每個像素 3 位元組
+    private final Deflater deflater;
+    private final DeflaterOutputStream compressed;
+    private int rowsWritten = 0;
+    private boolean closed = false;
+
+    /**
+     * 寫出檔頭並準備逐列寫入
+     * @param output 輸出串流，關閉時一併關閉
+     * @param width, height 圖片寬度與高度
+     */
+    public PngStreamWriter(OutputStream output, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * 3 + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid image size: " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(output, IDAT_SIZE));
+        this.width = width;
+        this.height = height;
+        this.rowBytes = new byte[1 + width * 3];
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.compressed = new DeflaterOutputStream(new IdatOutputStream(), deflater, IDAT_SIZE);
+
+        out.write(SIGNATURE);
+        // IHDR：寬、高、位元深度 8、色彩類型 2（RGB）、壓縮 0、濾波 0、不交錯
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8;
+        header[9] = 2;
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * 寫入下一列像素
+     * @param argb 像素資料（0xAARRGGBB，忽略透明度）
+     * @param offset 這一列第一個像素在陣列中的位置
+     */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        if (rowsWritten >= height) {
+            throw new IllegalStateException("all " + height + " rows already written");
+        }
+        rowBytes[0] = 1; // Sub 濾波：與左邊像素的差值，單色背景壓縮效果好很多
+        int previous = 0;
+        for (int x = 0, i = 1; x < width; x++, i += 3) {
+            int pixel = argb[offset + x];
+            rowBytes[i] = (byte) ((pixel >> 16) - (previous >> 16));
+            rowBytes[i + 1] = (byte) ((pixel >> 8) - (previous >> 8));
+            rowBytes[i + 2] = (byte) (pixel - previous);
+            previous = pixel;
+        }
+        compressed.write(rowBytes);
+        rowsWritten++;
+    }
+
+    // 已寫入的列數
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * 完成壓縮並寫出結尾區塊
+     * @throws IOException 寫入失敗，或寫入的列數少於圖片高度
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            compressed.finish();
+            compressed.flush(); // 寫出最後一個未滿的 IDAT 區塊
+            if (rowsWritten != height) {
+                throw new IOException("only " + rowsWritten + " of " + height + " rows written");
+            }
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    // 寫出一個 PNG 區塊：長度、類型、資料與 CRC
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * 接收壓縮後的資料，累積滿一個區塊就寫成 IDAT
+     */
+    private class IdatOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[count++] = (byte) b;
+            if (count == buffer.length) {
+                flushChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                int n = Math.min(length, buffer.length - count);
+                System.arraycopy(data, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+            }
+        }
+
+        // 寫出剩下的資料，壓縮完成後由 close() 呼叫
+        @Override
+        public void flush() throws IOException {
+            flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+    }
+}
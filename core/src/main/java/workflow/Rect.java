@@ -1,7 +1,7 @@
+package workflow;
+
 // 導入必要的 Java AWT 和集合類別
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
 // Rect 類別繼承自 Shape 類別，用於繪製矩形
 class Rect extends Shape {
@@ -12,6 +12,10 @@ class Rect extends Shape {
     private static final int WIDTH = 100; // 矩形寬度為 100 像素
     private static final int HEIGHT = 50; // 矩形高度為 50 像素
 
+    // 八個連接點相對於左上角的位移表，順序：左上、中上、右上、左中、右中、左下、中下、右下
+    private static final int[] PORT_DX = {0, WIDTH / 2, WIDTH, 0, WIDTH, 0, WIDTH / 2, WIDTH};
+    private static final int[] PORT_DY = {0, 0, 0, HEIGHT / 2, HEIGHT / 2, HEIGHT, HEIGHT, HEIGHT};
+
     // 建構子：初始化矩形的位置
     public Rect(int x, int y) { // 呼叫父類別建構子，設定位置和深度值
         super(x, y, 10); // 設定深度為 10
@@ -22,10 +26,23 @@ class Rect extends Shape {
     // 覆寫父類別的繪製方法
     @Override
     public void draw(Graphics g, boolean isSelected) {
-        g.setColor(Color.GRAY); // 設定填充顏色為灰色
+        draw(g, isSelected, DetailLevel.FULL);
+    }
+
+    // 依細節層級繪製矩形
+    @Override
+    public void draw(Graphics g, boolean isSelected, DetailLevel level) {
+        g.setColor(level == DetailLevel.MINIMAL && isSelected ? Color.BLACK : Color.GRAY); // 設定填充顏色為灰色，最簡層級以黑色表示選取
         g.fillRect(x, y, WIDTH, HEIGHT); // 繪製填充矩形
+        if (level == DetailLevel.MINIMAL) {
+            return;
+        }
 
-        if (isSelected) {
+        if (isSelected && level == DetailLevel.REDUCED) {
+            // 連接埠方塊太小，改畫外框表示選取
+            g.setColor(Color.BLACK);
+            g.drawRect(x, y, WIDTH, HEIGHT);
+        } else if (isSelected) {
             //被選取繪製port
             g.setColor(Color.BLACK);
             g.fillRect(x-5, y-5, 10, 10);//左上port
@@ -38,7 +55,7 @@ class Rect extends Shape {
             g.fillRect(x+95, y+20, 10, 10);//右中port
         }
         // 繪製矩形的標籤文字
-        drawLabel(g);
+        drawLabel(g, level);
     }
 
     // 取得矩形寬度的方法
@@ -62,24 +79,22 @@ class Rect extends Shape {
         return mouseX >= x && mouseX <= x + WIDTH && mouseY >= y && mouseY <= y + HEIGHT;
     }
 
-    // 取得矩形的連接點（用於連線）
+    // 取得矩形的連接點數量（用於連線）
     @Override
-    public List<Point> getConnectionPorts() {
-        // 建立一個新的連接點清單
-        List<Point> ports = new ArrayList<>();
+    public int getPortCount() {
+        return PORT_DX.length;
+    }
 
-        // 依序加入八個連接點：
-        ports.add(new Point(x, y)); // Top-left
-        ports.add(new Point(x + WIDTH / 2, y)); // Top-center
-        ports.add(new Point(x + WIDTH, y)); // Top-right
-        ports.add(new Point(x, y + HEIGHT / 2)); // Left-center
-        ports.add(new Point(x + WIDTH, y + HEIGHT / 2)); // Right-center
-        ports.add(new Point(x, y + HEIGHT)); // Bottom-left
-        ports.add(new Point(x + WIDTH / 2, y + HEIGHT)); // Bottom-center
-        ports.add(new Point(x + WIDTH, y + HEIGHT)); // Bottom-right
+    // 由位移表計算連接點的 X 座標
+    @Override
+    public int getPortX(int index) {
+        return x + PORT_DX[index];
+    }
 
-        // 回傳所有連接點
-        return ports;
+    // 由位移表計算連接點的 Y 座標
+    @Override
+    public int getPortY(int index) {
+        return y + PORT_DY[index];
     }
 
     // 取得邊界範圍
@@ -0,0 +1,303 @@
+package workflow;
+
+import java.awt.*;//java.awt提供了基本的視窗工具和圖形繪製功能
+import java.util.List;//List介面，這是一個介面（interface），定義了有序集合的基本操作方法
+//主要方法包括：add(): 添加元素，remove(): 移除元素，get(): 取得元素，size(): 取得集合大小，等等...
+import java.util.ArrayList;//ArrayList類別這是List介面的一個具體實作類別，使用陣列作為底層資料結構
+
+// 定義抽象形狀類別，作為所有圖形的基礎類別
+    // 特性	         abstract class（抽象類別）	                          public class（一般類別）
+    // 建立物件	     不能直接使用 new 建立物件	                           可以直接使用 new 建立物件
+    // 方法宣告	     可以包含抽象方法（無實作）和具體方法（有實作）	         只能包含具體方法（必須有實作）
+    // 繼承要求	     子類別必須實作所有抽象方法	                            子類別可以直接使用父類別的方法
+    // 主要用途	     定義共同的架構和規範	                               實作具體的功能
+    // 範例使用	     abstract class Shape { abstract void draw(); }	      public class Rectangle { void draw() { /*實作*/ } }
+    // 存取修飾子	 可以是 abstract 或 public	                           通常是 public
+    // 類別繼承	     可以繼承其他類別	                                   可以繼承其他類別
+    // 介面實作	     可以實作多個介面	                                   可以實作多個介面
+    // 完整性	     可以是不完整的（有抽象方法）	                        必須是完整的（所有方法都要有實作）
+abstract class Shape {
+    // protected是Java的存取修飾子（access modifier）之一
+    // 存取修飾子的四個層級（從最嚴格到最寬鬆）：
+    // private：最嚴格，只有類別內部可以存取
+    // protected：中等，允許：同一個類別，同一個套件，子類別（如 Rect, Oval）能存取這些變數
+    // default（無修飾子）：同一個套件
+    // public：最寬鬆，所有類別都可存取
+    protected int x, y; // 形狀的座標位置
+    protected int depth; // 形狀的深度屬性，用於決定繪製順序
+
+    // 建構子：初始化形狀的位置和深度
+    public Shape(int x, int y, int depth) {
+        this.x = x;
+        this.y = y;
+        this.depth = depth;
+    }
+
+    // 取得形狀的深度值
+    public int getDepth() {
+        return depth;
+    }
+
+    // 設置形狀的深度值
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    // 抽象方法：繪製形狀
+    // 參數：g - 繪圖環境，isSelected - 是否被選中
+    public abstract void draw(Graphics g, boolean isSelected);
+
+    // 依細節層級繪製形狀
+    // 參數：g - 繪圖環境，isSelected - 是否被選中，level - 細節層級
+    // 預設只有 FULL 層級，子類別覆寫以提供簡化的畫法
+    public void draw(Graphics g, boolean isSelected, DetailLevel level) {
+        draw(g, isSelected);
+    }
+
+    // 抽象方法：檢查滑鼠點擊是否在形狀內
+    // 參數：mouseX, mouseY - 滑鼠座標
+    public abstract boolean contains(int mouseX, int mouseY);
+
+    // 抽象方法：取得形狀的連接埠數量
+    public abstract int getPortCount();
+
+    // 抽象方法：取得第 index 個連接埠的 X 座標（直接計算，不建立物件）
+    public abstract int getPortX(int index);
+
+    // 抽象方法：取得第 index 個連接埠的 Y 座標（直接計算，不建立物件）
+    public abstract int getPortY(int index);
+
+    // 取得形狀的連接埠點位置列表
+    // 每次呼叫都會建立新的列表，頻繁執行的程式（例如拖曳時更新連線）應改用 getPortX/getPortY
+    public List<Point> getConnectionPorts() {
+        List<Point> ports = new ArrayList<>();
+        for (int i = 0; i < getPortCount(); i++) {
+            ports.add(new Point(getPortX(i), getPortY(i)));
+        }
+        return ports;
+    }
+
+    // 移動形狀的具體方法
+    // 參數：dx, dy - X和Y方向的位移量
+    // 只改變位置，相關連線由呼叫端透過 LinkCollector 統一更新，避免同一條連線被重複計算
+    public void move(int dx, int dy) {
+        this.x += dx;
+        this.y += dy;
+        invalidateAncestors(); // 上層組合的邊界快取已不正確
+    }
+
+    // 取得圖形的中心點
+    public Point getCenter() {
+        int width = getWidth();
+        int height = getHeight();
+        return new Point(x + width/2, y + height/2);
+    }
+
+
+    // 抽象方法：取得形狀的邊界矩形
+    public abstract Rectangle getBounds(); //getBounds()返回Rectangle是因為矩形是描述物件邊界最簡單且通用的方式，
+    //無論物件實際形狀為何（圓形、多邊形等），用矩形的左上角座標(x,y)加上寬度(width)和高度(height)就能完整表達該物件在螢幕上所佔的空間範圍。
+
+    // 選取時繪製的連接埠方塊（10x10，以連接點為中心）超出圖形邊界的距離，多留 1 像素避免殘影
+    protected static final int PORT_MARGIN = 6;
+
+    // 取得圖形實際繪製時佔用的範圍
+    // 與 getBounds() 不同，這裡包含選取時的連接埠方塊以及可能超出圖形的標籤，用於局部重繪與裁切判斷
+    public Rectangle getPaintBounds() {
+        Rectangle paintBounds = getBounds();
+        paintBounds.grow(PORT_MARGIN, PORT_MARGIN);
+        Rectangle labelBounds = getLabelBounds();
+        if (labelBounds != null) {
+            paintBounds.add(labelBounds); // 合併標籤範圍
+        }
+        return paintBounds;
+    }
+
+    // 將繪製範圍（與 getPaintBounds() 相同）合併到指定矩形，不建立新物件，供拖曳時累積變動範圍
+    public void addPaintBoundsTo(Rectangle rect) {
+        rect.add(x - PORT_MARGIN, y - PORT_MARGIN);
+        rect.add(x + getWidth() + PORT_MARGIN, y + getHeight() + PORT_MARGIN);
+        LabelCache.Layout layout = getLabelLayout();
+        if (layout != null) {
+            int labelX = x + getWidth() / 2 - layout.labelWidth / 2;
+            int labelY = y + getHeight() / 2 - layout.labelHeight / 2;
+            rect.add(labelX, labelY);
+            rect.add(labelX + layout.extentWidth + 1, labelY + layout.labelHeight + 1);
+        }
+    }
+
+    // 形狀是否被選中的標記
+    private boolean isSelected = false;
+
+    // 所屬的組合圖形（父節點），不在任何組合中時為 null
+    private Composite parent = null;
+
+    // 取得所屬的組合圖形
+    public Composite getParent() {
+        return parent;
+    }
+
+    // 設定所屬的組合圖形，由 Composite 加入或移除子圖形時呼叫
+    void setParent(Composite parent) {
+        this.parent = parent;
+    }
+
+    // 通知所有上層組合：此圖形的位置或外觀已改變，需要重新計算快取
+    // 遇到快取本來就已失效的組合即可停止，因為它的上層一定也已失效
+    protected void invalidateAncestors() {
+        for (Composite p = parent; p != null && p.invalidateCaches(); p = p.getParent()) {
+            // 持續往上層傳遞
+        }
+    }
+
+    // 儲存與此形狀相連的所有連接線
+    private List<Link> links = new ArrayList<>();
+
+    // 新增連線到圖形的連線列表
+    public void addLink(Link link) {
+        if (!links.contains(link)) {
+            links.add(link);
+        }
+    }
+
+    // 讀取檔案時加入連線：檔案中的連線本來就不重複，不必逐一檢查，連線很多的圖形載入時才不會是平方成本
+    void appendLoadedLink(Link link) {
+        links.add(link);
+    }
+
+    // 從圖形的連線列表中移除連線
+    public void removeLink(Link link) {
+        links.remove(link);
+    }
+
+    // 取得所有連接線的列表
+    public List<Link> getLinks() {
+        return links;
+    }
+
+    // 檢查形狀是否被選中
+    public boolean isSelected() {
+        return isSelected;
+    }
+
+    // 設置形狀的選中狀態
+    public void setSelected(boolean selected) {
+        this.isSelected = selected;
+    }
+
+    // 取得最接近指定座標的連接埠編號，沒有連接埠時返回 -1
+    // 只做整數運算、不建立任何物件，是拖曳時更新連線的主要路徑
+    public int getClosestPortIndex(int mouseX, int mouseY) {
+        int closestIndex = -1;
+        // 比較距離的平方即可，不需要開根號
+        long minDistance = Long.MAX_VALUE;
+        for (int i = 0; i < getPortCount(); i++) {
+            long dx = getPortX(i) - mouseX;
+            long dy = getPortY(i) - mouseY;
+            long distance = dx * dx + dy * dy;
+            // 如果找到更近的連接埠，更新最小距離和最近連接埠
+            if (distance < minDistance) {
+                minDistance = distance;
+                closestIndex = i;
+            }
+        }
+        return closestIndex;
+    }
+
+    // 取得最接近滑鼠位置的連接埠（Port），沒有連接埠時返回 null
+    public Point getClosestPort(int mouseX, int mouseY) {
+        int index = getClosestPortIndex(mouseX, mouseY);
+        if (index < 0) {
+            return null;
+        }
+        return new Point(getPortX(index), getPortY(index));
+    }
+
+    // ===== 標籤相關屬性宣告 =====
+    protected String labelText = ""; // 標籤文字內容
+    protected Color labelColor = Color.YELLOW; // 標籤背景顏色，預設為黃色
+    protected int fontSize = 12; // 字型大小，預設為 12
+    protected boolean isRectLabel = true; // 標籤形狀，true 代表矩形，false 代表橢圓形
+    private LabelCache.Layout labelLayout = null; // 目前標籤樣式的排版結果，標籤屬性改變時清除
+
+    // ===== 標籤屬性的 getter 和 setter 方法 =====
+    // 改變標籤屬性時清除排版快取，下次繪製時再從 LabelCache 取得新樣式的排版
+    public String getLabelText() { return labelText; } // 取得標籤文字
+    public void setLabelText(String labelText) { this.labelText = labelText; labelLayout = null; invalidateAncestors(); }  // 設置標籤文字
+    public Color getLabelColor() { return labelColor; }  // 取得標籤顏色
+    public void setLabelColor(Color labelColor) { this.labelColor = labelColor; labelLayout = null; } // 設置標籤顏色
+    public int getFontSize() { return fontSize; } // 取得標籤字體大小
+    public void setFontSize(int fontSize) { this.fontSize = fontSize; labelLayout = null; invalidateAncestors(); } // 設置字型大小
+    public boolean isRectLabel() { return isRectLabel; } // 檢查是否為矩形標籤
+    public void setRectLabel(boolean isRectLabel) { this.isRectLabel = isRectLabel; labelLayout = null; } // 設置標籤形狀（矩形/橢圓形）
+
+    // ===== 抽象方法宣告 =====
+    public abstract int getWidth(); // 取得形狀寬度的抽象方法，需要由子類別實作
+    public abstract int getHeight(); // 取得形狀高度的抽象方法，需要由子類別實作
+
+    // 取得目前標籤樣式的排版結果，沒有標籤文字時返回 null
+    protected LabelCache.Layout getLabelLayout() {
+        if (labelText == null || labelText.isEmpty()) {
+            return null;
+        }
+        LabelCache.Layout layout = labelLayout;
+        if (layout == null) {
+            // 排版從快取淘汰後仍然保留：量測結果不變，只是不再使用預先繪製的影像，不必在快取的同步鎖內重新量測
+            layout = LabelCache.get(labelText, fontSize, labelColor, isRectLabel);
+            labelLayout = layout;
+        }
+        return layout;
+    }
+
+    // 取得標籤在畫布上佔用的範圍，計算方式與 drawLabel 相同；沒有標籤文字時返回 null
+    public Rectangle getLabelBounds() {
+        LabelCache.Layout layout = getLabelLayout();
+        if (layout == null) {
+            return null;
+        }
+        // 標籤置中於形狀，多留 1 像素避免殘影
+        int labelX = x + getWidth() / 2 - layout.labelWidth / 2;
+        int labelY = y + getHeight() / 2 - layout.labelHeight / 2;
+        return new Rectangle(labelX, labelY, layout.extentWidth + 1, layout.labelHeight + 1);
+    }
+
+    // 繪製標籤的方法
+    // 字型、尺寸與文字位置都來自快取的排版，不必每次建立字型物件與量測文字
+    protected void drawLabel(Graphics g) {
+        // 檢查標籤文字是否為空，如果是則直接返回不進行繪製
+        LabelCache.Layout layout = getLabelLayout();
+        if (layout == null) {
+            return;  // 如果沒有標籤文字，不繪製
+        }
+
+        // 計算標籤的左上角座標（使標籤置中於形狀）
+        int labelX = x + getWidth() / 2 - layout.labelWidth / 2; // 標籤的 X 座標
+        int labelY = y + getHeight() / 2 - layout.labelHeight / 2; // 標籤的 Y 座標
+
+        // 沒有縮放時直接貼上預先繪製好的標籤影像；有縮放時影像會模糊，改用向量繪製
+        if (LabelCache.isPrerenderEnabled() && LabelCache.isUnscaled(g)) {
+            Image image = layout.getImage();
+            if (image != null) {
+                g.drawImage(image, labelX, labelY, null);
+                return;
+            }
+        }
+        layout.draw(g, labelX, labelY);
+    }
+
+    // 依細節層級繪製標籤：FULL 完整繪製，REDUCED 只畫背景，MINIMAL 不繪製
+    // FULL 層級下字型投影到螢幕上太小而無法辨識時，也只畫背景
+    protected void drawLabel(Graphics g, DetailLevel level) {
+        if (level == DetailLevel.FULL && !DetailLevel.isTextReadable(g, fontSize)) {
+            level = DetailLevel.REDUCED;
+        }
+        if (level == DetailLevel.FULL) {
+            drawLabel(g);
+            return;
+        }
+        LabelCache.Layout layout = level == DetailLevel.REDUCED ? getLabelLayout() : null;
+        if (layout != null) {
+            layout.drawBackground(g, x + getWidth() / 2 - layout.labelWidth / 2, y + getHeight() / 2 - layout.labelHeight / 2);
+        }
+    }
+}
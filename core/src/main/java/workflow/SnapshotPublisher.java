@@ -0,0 +1,217 @@
+package workflow;
+
+// 導入必要的集合類別
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SnapshotPublisher 類別：追蹤模型中有改變的圖形與連線，並發布新的 DiagramSnapshot
+ * 編輯操作只登記被修改的物件，publish() 時才讀取它們目前的狀態並替換快照中對應的記錄，
+ * 因此每次發布的成本與改變的數量成正比（加上每筆 log32(n) 的路徑複製），而不是整份圖表
+ * 圖形是否仍在圖表中由它的最上層組合是否在 ZOrderStore 中決定，不需要另外追蹤移除
+ * 所有方法（getSnapshot 除外）都只能在修改模型的執行緒上呼叫；快照以 volatile 欄位發布，其他執行緒讀取時不需要鎖定
+ */
+class SnapshotPublisher {
+    private final ZOrderStore topLevel; // 模型的頂層圖形，用於判斷圖形是否仍在圖表中以及取得序號
+
+    // 物件 -> 快照中的編號
+    private final Map<Shape, Integer> shapeIds = new IdentityHashMap<>();
+    private final Map<Link, Integer> linkIds = new IdentityHashMap<>();
+    private final ArrayDeque<Integer> freeShapeIds = new ArrayDeque<>(); // 已移除、可重新使用的編號
+    private final ArrayDeque<Integer> freeLinkIds = new ArrayDeque<>();
+    private long nextLinkOrder = 0; // 下一條新連線的順序
+
+    // 上次發布後改變的物件；連線的值表示是否仍在圖表中
+    // 新連線依登記的先後取得繪製順序，所以連線保留登記順序（Link 沒有覆寫 equals，LinkedHashMap 即以物件本身為鍵）
+    private final Set<Shape> changedShapes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Link, Boolean> changedLinks = new LinkedHashMap<>();
+
+    private volatile DiagramSnapshot snapshot = DiagramSnapshot.EMPTY; // 最新發布的快照
+
+    /**
+     * @param topLevel 模型的頂層圖形
+     */
+    SnapshotPublisher(ZOrderStore topLevel) {
+        this.topLevel = topLevel;
+    }
+
+    /**
+     * 取得最新發布的快照，可在任何執行緒呼叫
+     * @return 快照
+     */
+    public DiagramSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 登記圖形本身的內容、位置、所屬組合或上下順序已改變（包含加入與移除）
+    void shapeChanged(Shape shape) {
+        changedShapes.add(shape);
+    }
+
+    // 登記圖形與組合內所有子圖形都已改變，例如移動組合
+    void treeChanged(Shape shape) {
+        changedShapes.add(shape);
+        if (shape instanceof Composite composite) {
+            List<Shape> children = composite.getChildShapes();
+            for (int i = 0; i < children.size(); i++) {
+                treeChanged(children.get(i));
+            }
+        }
+    }
+
+    // 登記連線已加入或改變
+    void linkChanged(Link link) {
+        changedLinks.put(link, Boolean.TRUE);
+    }
+
+    // 登記連線已移除
+    void linkRemoved(Link link) {
+        changedLinks.put(link, Boolean.FALSE);
+    }
+
+    // 捨棄所有編號與快照，下一次發布從空白開始（用於整份取代圖表）
+    void reset() {
+        shapeIds.clear();
+        linkIds.clear();
+        freeShapeIds.clear();
+        freeLinkIds.clear();
+        changedShapes.clear();
+        changedLinks.clear();
+        nextLinkOrder = 0;
+        snapshot = new DiagramSnapshot(snapshot.getVersion() + 1, PersistentVector.empty(), PersistentVector.empty(), 0, 0);
+    }
+
+    /**
+     * 將上次發布後登記的改變寫入新版本的快照並發布；沒有改變時不產生新版本
+     * @return 最新的快照
+     */
+    DiagramSnapshot publish() {
+        DiagramSnapshot base = snapshot;
+        if (changedShapes.isEmpty() && changedLinks.isEmpty()) {
+            return base;
+        }
+        PersistentVector<DiagramSnapshot.ShapeRecord> shapes = base.shapeVector();
+        PersistentVector<DiagramSnapshot.LinkRecord> links = base.linkVector();
+        int shapeCount = base.getShapeCount();
+        int linkCount = base.getLinkCount();
+
+        // 被移除的組合，連同仍在它底下的子圖形一起移除
+        List<Shape> removedComposites = new ArrayList<>();
+        for (Shape shape : changedShapes) {
+            if (shape instanceof Composite && shapeIds.containsKey(shape) && !isAttached(shape)) {
+                removedComposites.add(shape);
+            }
+        }
+        for (Shape composite : removedComposites) {
+            treeChanged(composite);
+        }
+
+        // 先移除不在圖表中的圖形並替仍在圖表中的圖形分配編號，子圖形記錄所屬組合時需要組合的編號
+        for (Shape shape : changedShapes) {
+            if (isAttached(shape)) {
+                if (!shapeIds.containsKey(shape)) {
+                    int id = allocate(freeShapeIds, shapes.size());
+                    if (id == shapes.size()) {
+                        shapes = shapes.set(id, null); // 先佔用新的位置，下一個新圖形才會拿到不同的編號
+                    }
+                    shapeIds.put(shape, id);
+                    shapeCount++;
+                }
+            } else {
+                Integer id = shapeIds.remove(shape);
+                if (id != null) {
+                    shapes = shapes.set(id, null);
+                    freeShapeIds.push(id);
+                    shapeCount--;
+                }
+            }
+        }
+        // 組合內的子圖形以在組合中的位置排序，每個組合只建立一次位置表
+        Map<Composite, Map<Shape, Integer>> childOrders = new IdentityHashMap<>();
+        for (Shape shape : changedShapes) {
+            Integer id = shapeIds.get(shape);
+            if (id != null) {
+                shapes = shapes.set(id, toRecord(shape, childOrders));
+            }
+        }
+        changedShapes.clear();
+
+        for (Map.Entry<Link, Boolean> entry : changedLinks.entrySet()) {
+            Link link = entry.getKey();
+            Integer startId = shapeIds.get(link.getStartShape());
+            Integer endId = shapeIds.get(link.getEndShape());
+            Integer id = linkIds.get(link);
+            if (entry.getValue() && startId != null && endId != null) {
+                long order;
+                if (id == null) {
+                    id = allocate(freeLinkIds, links.size());
+                    linkIds.put(link, id);
+                    order = nextLinkOrder++;
+                    linkCount++;
+                } else {
+                    order = links.get(id).order();
+                }
+                links = links.set(id, new DiagramSnapshot.LinkRecord(startId, link.getStartPort().x, link.getStartPort().y,
+                        endId, link.getEndPort().x, link.getEndPort().y, link.getType(), order));
+            } else if (id != null) {
+                linkIds.remove(link);
+                links = links.set(id, null);
+                freeLinkIds.push(id);
+                linkCount--;
+            }
+        }
+        changedLinks.clear();
+
+        DiagramSnapshot next = new DiagramSnapshot(base.getVersion() + 1, shapes, links, shapeCount, linkCount);
+        snapshot = next;
+        return next;
+    }
+
+    // 圖形的最上層組合（或圖形本身）在頂層集合中時，圖形才在圖表中
+    private boolean isAttached(Shape shape) {
+        Shape root = shape;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return topLevel.sequenceOf(root) >= 0;
+    }
+
+    // 取得可重新使用的編號，沒有時使用新的編號
+    private static int allocate(ArrayDeque<Integer> free, int capacity) {
+        return free.isEmpty() ? capacity : free.pop();
+    }
+
+    // 讀取圖形目前的狀態
+    private DiagramSnapshot.ShapeRecord toRecord(Shape shape, Map<Composite, Map<Shape, Integer>> childOrders) {
+        DiagramSnapshot.Kind kind = shape instanceof Composite ? DiagramSnapshot.Kind.COMPOSITE
+                : shape instanceof Oval ? DiagramSnapshot.Kind.OVAL : DiagramSnapshot.Kind.RECT;
+        Composite parent = shape.getParent();
+        int parentId;
+        long order;
+        if (parent == null) {
+            parentId = -1;
+            order = topLevel.sequenceOf(shape);
+        } else {
+            parentId = shapeIds.get(parent);
+            order = childOrders.computeIfAbsent(parent, SnapshotPublisher::indexChildren).get(shape);
+        }
+        return new DiagramSnapshot.ShapeRecord(kind, shape.x, shape.y, shape.getDepth(), parentId, order,
+                shape.getLabelText(), shape.getLabelColor(), shape.getFontSize(), shape.isRectLabel());
+    }
+
+    // 建立組合內子圖形的位置表
+    private static Map<Shape, Integer> indexChildren(Composite composite) {
+        List<Shape> children = composite.getChildShapes();
+        Map<Shape, Integer> index = new IdentityHashMap<>(children.size());
+        for (int i = 0; i < children.size(); i++) {
+            index.put(children.get(i), i);
+        }
+        return index;
+    }
+}
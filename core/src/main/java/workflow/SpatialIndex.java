@@ -0,0 +1,366 @@
+package workflow;
+
+// 導入必要的 Java AWT 和集合類別
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * SpatialIndex 類別：以均勻網格（uniform grid）實作的空間索引
+ * 每個項目依照它的範圍登記到所覆蓋的網格格子中，
+ * 點查詢與矩形查詢只需要檢查相關的格子，不必走訪畫布上的全部項目
+ * 圖形以繪製範圍（addPaintBoundsTo）登記，繪製範圍涵蓋圖形本身，
+ * 因此同一個索引可同時用於點擊判斷（候選再以 contains 精確判斷）與重繪裁切；
+ * 連線以包含箭頭的範圍（addBoundsTo）登記，用於重繪裁切
+ * 查詢結果依照繪製順序排列，最上層（最後繪製）的項目排在最前面
+ * 會連續移動很多步的項目（例如拖曳中圖形的連線）可以先以 unsettle 暫時移出格子，移動時不必重新登記，
+ * 查詢時逐一以目前的範圍判斷，移動結束後再以 settle 登記回格子
+ * @param <T> 索引的項目類型，以物件身分比對
+ */
+class SpatialIndex<T> {
+    private static final int DEFAULT_CELL_SIZE = 128; // 預設格子大小（像素），約為一個 Rect 的寬度
+
+    private final int cellSize; // 每個網格格子的邊長
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>(); // 格子座標 -> 落在該格的項目
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>(); // 項目 -> 索引項目（以物件身分比對）
+    private final Comparator<T> paintOrder; // 繪製順序（下層在前），用於排序查詢結果；null 表示依加入索引的先後
+    private final BiConsumer<T, Rectangle> boundsFunction; // 將項目的範圍合併到指定矩形
+    private final Rectangle newBounds = new Rectangle(); // update 計算新邊界用，拖曳時不建立新物件
+    private long nextSequence = 0; // 下一個加入的項目的序號
+    private final List<Entry<T>> floating = new ArrayList<>(); // 以 unsettle 暫時移出格子的項目
+
+    // 索引項目：記錄項目、登記時的邊界與加入的先後
+    private static class Entry<T> {
+        final T item;
+        final Rectangle bounds; // 登記到格子時使用的邊界
+        final long sequence; // 加入索引的先後，沒有指定繪製順序時用來排序
+        boolean floating; // 是否暫時不在格子中（見 unsettle）
+
+        Entry(T item, Rectangle bounds, long sequence) {
+            this.item = item;
+            this.bounds = bounds;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * @param paintOrder 項目的繪製順序比較器（下層在前），圖形通常來自 ZOrderStore；
+     *                   null 表示依加入索引的先後繪製（先加入的在下層），例如連線
+     * @param boundsFunction 將項目的範圍合併到指定矩形的方法，例如 Shape::addPaintBoundsTo
+     */
+    public SpatialIndex(Comparator<T> paintOrder, BiConsumer<T, Rectangle> boundsFunction) {
+        this(paintOrder, boundsFunction, DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialIndex(Comparator<T> paintOrder, BiConsumer<T, Rectangle> boundsFunction, int cellSize) {
+        this.paintOrder = paintOrder;
+        this.boundsFunction = boundsFunction;
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * 將項目加入索引
+     * @param item 要加入的項目
+     */
+    public void insert(T item) {
+        if (entries.containsKey(item)) {
+            update(item);
+            return;
+        }
+        Rectangle bounds = new Rectangle(0, 0, -1, -1);
+        boundsFunction.accept(item, bounds);
+        Entry<T> entry = new Entry<>(item, bounds, nextSequence++);
+        entries.put(item, entry);
+        addToCells(entry);
+    }
+
+    /**
+     * 從索引中移除項目
+     * @param item 要移除的項目
+     */
+    public void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return;
+        }
+        if (entry.floating) {
+            floating.remove(entry);
+        } else {
+            removeFromCells(entry);
+        }
+    }
+
+    /**
+     * 項目移動、尺寸或標籤改變後呼叫，重新登記到新的格子
+     * 只登記或移除新舊範圍不同的格子；若新舊邊界落在相同的格子範圍內，只更新記錄的邊界
+     * @param item 位置已改變的項目
+     */
+    public void update(T item) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null || entry.floating) {
+            return; // 暫時移出格子的項目在查詢時才讀取範圍
+        }
+        newBounds.setBounds(0, 0, -1, -1); // 不存在的矩形，合併後就是項目的範圍
+        boundsFunction.accept(item, newBounds);
+        if (!sameCells(entry.bounds, newBounds)) {
+            moveCells(entry, entry.bounds, newBounds);
+        }
+        entry.bounds.setBounds(newBounds); // 項目的邊界只屬於這個索引，直接修改
+    }
+
+    /**
+     * 將項目暫時移出格子：之後的 update 不做任何事，查詢時逐一以項目目前的範圍判斷
+     * 用於接下來會連續移動很多步的項目，每一步不必重新登記格子；移動結束後呼叫 settle
+     * @param item 索引中的項目
+     */
+    public void unsettle(T item) {
+        Entry<T> entry = entries.get(item);
+        if (entry != null && !entry.floating) {
+            removeFromCells(entry);
+            entry.floating = true;
+            floating.add(entry);
+        }
+    }
+
+    /**
+     * 將所有以 unsettle 移出的項目依目前的範圍登記回格子
+     */
+    public void settle() {
+        for (Entry<T> entry : floating) {
+            entry.floating = false;
+            entry.bounds.setBounds(0, 0, -1, -1);
+            boundsFunction.accept(entry.item, entry.bounds);
+            addToCells(entry);
+        }
+        floating.clear();
+    }
+
+    // 清除索引中的所有資料
+    public void clear() {
+        cells.clear();
+        entries.clear();
+        floating.clear();
+        nextSequence = 0;
+    }
+
+    // 取得索引中的項目數量
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 點查詢：取得邊界包含指定點的項目
+     * 邊界判斷包含右邊界與下邊界，與 Rect/Oval 的 contains 一致
+     * @param x, y 查詢點座標
+     * @return 候選項目列表，最上層的項目在最前面
+     */
+    public List<T> query(int x, int y) {
+        List<Entry<T>> cell = cells.get(key(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize)));
+        if (cell == null && floating.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Entry<T>> hits = new ArrayList<>();
+        if (cell != null) {
+            for (Entry<T> entry : cell) {
+                if (containsPoint(entry.bounds, x, y)) {
+                    hits.add(entry);
+                }
+            }
+        }
+        if (!floating.isEmpty()) {
+            Rectangle current = new Rectangle();
+            for (Entry<T> entry : floating) {
+                if (containsPoint(currentBounds(entry, current), x, y)) {
+                    hits.add(entry);
+                }
+            }
+        }
+        return toSortedItems(hits);
+    }
+
+    /**
+     * 矩形查詢：取得範圍與指定矩形相交的項目
+     * @param rect 查詢矩形
+     * @return 候選項目列表，最上層的項目在最前面
+     */
+    public List<T> query(Rectangle rect) {
+        return toSortedItems(collect(rect));
+    }
+
+    /**
+     * 計算範圍與指定矩形相交的項目數量，不排序也不建立結果列表
+     * @param rect 查詢矩形
+     * @return 項目數量
+     */
+    public int count(Rectangle rect) {
+        return collect(rect).size();
+    }
+
+    // 收集範圍與指定矩形相交的索引項目（未排序）
+    private List<Entry<T>> collect(Rectangle rect) {
+        int minCx = Math.floorDiv(rect.x, cellSize);
+        int minCy = Math.floorDiv(rect.y, cellSize);
+        int maxCx = Math.floorDiv(rect.x + rect.width, cellSize);
+        int maxCy = Math.floorDiv(rect.y + rect.height, cellSize);
+
+        List<Entry<T>> hits = new ArrayList<>();
+        // 跨越多個格子的項目只收集一次
+        Set<Entry<T>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long coveredCells = (long) (maxCx - minCx + 1) * (maxCy - minCy + 1);
+        if (coveredCells > cells.size()) {
+            // 查詢範圍涵蓋的格子比有項目的格子還多（例如縮小到整份圖表都在畫面內），改為走訪有項目的格子
+            for (Map.Entry<Long, List<Entry<T>>> cell : cells.entrySet()) {
+                long k = cell.getKey();
+                int cx = (int) (k >> 32);
+                int cy = (int) k;
+                if (cx >= minCx && cx <= maxCx && cy >= minCy && cy <= maxCy) {
+                    addHits(cell.getValue(), rect, seen, hits);
+                }
+            }
+        } else {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                for (int cy = minCy; cy <= maxCy; cy++) {
+                    List<Entry<T>> cell = cells.get(key(cx, cy));
+                    if (cell != null) {
+                        addHits(cell, rect, seen, hits);
+                    }
+                }
+            }
+        }
+        addFloatingHits(rect, hits);
+        return hits;
+    }
+
+    // 加入格子中與查詢矩形相交、還沒收集過的項目
+    private static <T> void addHits(List<Entry<T>> cell, Rectangle rect, Set<Entry<T>> seen, List<Entry<T>> hits) {
+        for (Entry<T> entry : cell) {
+            if (rect.intersects(entry.bounds) && seen.add(entry)) {
+                hits.add(entry);
+            }
+        }
+    }
+
+    // 逐一檢查暫時移出格子的項目（它們不在任何格子中，不會重複）
+    private void addFloatingHits(Rectangle rect, List<Entry<T>> hits) {
+        if (floating.isEmpty()) {
+            return;
+        }
+        Rectangle current = new Rectangle();
+        for (Entry<T> entry : floating) {
+            if (rect.intersects(currentBounds(entry, current))) {
+                hits.add(entry);
+            }
+        }
+    }
+
+    // 將項目目前的範圍寫入 rect 並返回它；查詢可能在多個執行緒同時進行，由呼叫端提供矩形
+    private Rectangle currentBounds(Entry<T> entry, Rectangle rect) {
+        rect.setBounds(0, 0, -1, -1);
+        boundsFunction.accept(entry.item, rect);
+        return rect;
+    }
+
+    // 邊界判斷包含右邊界與下邊界
+    private static boolean containsPoint(Rectangle b, int x, int y) {
+        return x >= b.x && x <= b.x + b.width && y >= b.y && y <= b.y + b.height;
+    }
+
+    // 依繪製順序排序（上層優先）並轉成項目列表
+    private List<T> toSortedItems(List<Entry<T>> hits) {
+        if (paintOrder != null) {
+            hits.sort((e1, e2) -> paintOrder.compare(e2.item, e1.item));
+        } else {
+            hits.sort((e1, e2) -> Long.compare(e2.sequence, e1.sequence));
+        }
+        List<T> result = new ArrayList<>(hits.size());
+        for (Entry<T> entry : hits) {
+            result.add(entry.item);
+        }
+        return result;
+    }
+
+    // 將索引項目登記到它覆蓋的所有格子
+    private void addToCells(Entry<T> entry) {
+        Rectangle b = entry.bounds;
+        int maxCx = Math.floorDiv(b.x + b.width, cellSize);
+        int maxCy = Math.floorDiv(b.y + b.height, cellSize);
+        for (int cx = Math.floorDiv(b.x, cellSize); cx <= maxCx; cx++) {
+            for (int cy = Math.floorDiv(b.y, cellSize); cy <= maxCy; cy++) {
+                addToCell(entry, cx, cy);
+            }
+        }
+    }
+
+    // 從索引項目覆蓋的所有格子中移除
+    private void removeFromCells(Entry<T> entry) {
+        Rectangle b = entry.bounds;
+        int maxCx = Math.floorDiv(b.x + b.width, cellSize);
+        int maxCy = Math.floorDiv(b.y + b.height, cellSize);
+        for (int cx = Math.floorDiv(b.x, cellSize); cx <= maxCx; cx++) {
+            for (int cy = Math.floorDiv(b.y, cellSize); cy <= maxCy; cy++) {
+                removeFromCell(entry, cx, cy);
+            }
+        }
+    }
+
+    // 範圍從 from 移到 to：只處理兩者不共有的格子，很長的連線移動一點點時不必重新登記全部格子
+    private void moveCells(Entry<T> entry, Rectangle from, Rectangle to) {
+        int fromMinCx = Math.floorDiv(from.x, cellSize);
+        int fromMinCy = Math.floorDiv(from.y, cellSize);
+        int fromMaxCx = Math.floorDiv(from.x + from.width, cellSize);
+        int fromMaxCy = Math.floorDiv(from.y + from.height, cellSize);
+        int toMinCx = Math.floorDiv(to.x, cellSize);
+        int toMinCy = Math.floorDiv(to.y, cellSize);
+        int toMaxCx = Math.floorDiv(to.x + to.width, cellSize);
+        int toMaxCy = Math.floorDiv(to.y + to.height, cellSize);
+        for (int cx = fromMinCx; cx <= fromMaxCx; cx++) {
+            for (int cy = fromMinCy; cy <= fromMaxCy; cy++) {
+                if (cx < toMinCx || cx > toMaxCx || cy < toMinCy || cy > toMaxCy) {
+                    removeFromCell(entry, cx, cy);
+                }
+            }
+        }
+        for (int cx = toMinCx; cx <= toMaxCx; cx++) {
+            for (int cy = toMinCy; cy <= toMaxCy; cy++) {
+                if (cx < fromMinCx || cx > fromMaxCx || cy < fromMinCy || cy > fromMaxCy) {
+                    addToCell(entry, cx, cy);
+                }
+            }
+        }
+    }
+
+    private void addToCell(Entry<T> entry, int cx, int cy) {
+        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(entry);
+    }
+
+    private void removeFromCell(Entry<T> entry, int cx, int cy) {
+        long k = key(cx, cy);
+        List<Entry<T>> cell = cells.get(k);
+        if (cell != null) {
+            cell.remove(entry);
+            if (cell.isEmpty()) {
+                cells.remove(k); // 空格子直接移除，避免佔用記憶體
+            }
+        }
+    }
+
+    // 判斷兩個邊界是否覆蓋完全相同的格子範圍
+    private boolean sameCells(Rectangle a, Rectangle b) {
+        return Math.floorDiv(a.x, cellSize) == Math.floorDiv(b.x, cellSize)
+                && Math.floorDiv(a.y, cellSize) == Math.floorDiv(b.y, cellSize)
+                && Math.floorDiv(a.x + a.width, cellSize) == Math.floorDiv(b.x + b.width, cellSize)
+                && Math.floorDiv(a.y + a.height, cellSize) == Math.floorDiv(b.y + b.height, cellSize);
+    }
+
+    // 將格子座標編碼成單一 long 作為雜湊鍵：高 32 位元為 cx，低 32 位元為 cy
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) ^ (cy & 0xffffffffL);
+    }
+}
@@ -0,0 +1,227 @@
+package workflow;
+
+// 導入文字輸出與集合類別
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SvgExporter 類別：將圖表輸出成 SVG，幾何形狀與 Rect/Oval/Shape.drawLabel/Link.draw 繪製的結果相同
+ * 三種連線箭頭定義在 &lt;defs&gt; 中的 marker，每條連線只以 marker-end 參照；
+ * 圖形、連線與標籤的樣式寫成 CSS class，相同的標籤顏色或字型大小共用同一個 class，
+ * 輸出大小只與元素數量成正比
+ * 分兩次走訪圖表：第一次只收集不重複的標籤樣式（數量很少），第二次逐一寫出元素，
+ * 除了樣式表之外不需要額外的記憶體
+ */
+final class SvgExporter {
+    private static final int MARGIN = 10; // 圖片四周的留白
+
+    // 箭頭的 marker，座標以連線終點為原點、連線方向為 X 軸，與 Link 的箭頭計算方式相同
+    // （邊長 10、左右各偏 30 度：cos 30° × 10 ≈ 8.66，sin 30° × 10 = 5）
+    private static final String DEFS = """
+            <defs>
+            <marker id="association" orient="auto" markerUnits="userSpaceOnUse" overflow="visible">\
+            <path class="m" d="M-8.66,-5L0,0L-8.66,5"/></marker>
+            <marker id="generalization" orient="auto" markerUnits="userSpaceOnUse" overflow="visible">\
+            <path class="m" d="M0,0L-8.66,-5L-8.66,5Z"/></marker>
+            <marker id="composition" orient="auto" markerUnits="userSpaceOnUse" overflow="visible">\
+            <path class="m" d="M0,0L-8.66,-5L-18.66,-5L-8.66,5Z"/></marker>
+            </defs>
+            """;
+
+    private SvgExporter() {
+        // 只提供靜態方法
+    }
+
+    /**
+     * 將圖表寫成 SVG 檔案（UTF-8），檔案已存在時覆寫
+     * @param diagram 要輸出的圖表
+     * @param path 檔案路徑
+     */
+    static void write(Diagram diagram, Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(diagram, out);
+        }
+    }
+
+    /**
+     * 將圖表以 SVG 寫到輸出，元素依繪製順序逐一寫出
+     * @param diagram 要輸出的圖表，頂層圖形依繪製順序（下層在前）排列
+     * @param out 輸出目的地，呼叫端負責關閉
+     */
+    static void write(Diagram diagram, Writer out) throws IOException {
+        Writer writer = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+
+        // 第一次走訪：收集標籤樣式並計算整份圖表的範圍
+        Styles styles = new Styles();
+        Rectangle bounds = null;
+        for (Shape shape : diagram.shapes()) {
+            styles.collect(shape);
+            bounds = bounds == null ? shape.getPaintBounds() : bounds.union(shape.getPaintBounds());
+        }
+        for (Link link : diagram.links()) {
+            bounds = bounds == null ? link.getBounds() : bounds.union(link.getBounds());
+        }
+        if (bounds == null) {
+            bounds = new Rectangle();
+        }
+        bounds.grow(MARGIN, MARGIN);
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + bounds.width + "\" height=\"" + bounds.height
+                + "\" viewBox=\"" + bounds.x + " " + bounds.y + " " + bounds.width + " " + bounds.height + "\">\n");
+        writer.write(DEFS);
+        writeStyleSheet(writer, styles);
+        writer.write("<rect x=\"" + bounds.x + "\" y=\"" + bounds.y + "\" width=\"" + bounds.width
+                + "\" height=\"" + bounds.height + "\" fill=\"#fff\"/>\n");
+
+        // 第二次走訪：逐一寫出圖形，再寫出連線（與畫布相同，連線畫在圖形上方）
+        for (Shape shape : diagram.shapes()) {
+            writeShape(writer, shape, styles);
+        }
+        for (Link link : diagram.links()) {
+            writeLink(writer, link);
+        }
+        writer.write("</svg>\n");
+        writer.flush();
+    }
+
+    // 寫出 CSS 樣式表：圖形本體、連線、箭頭，以及每種標籤背景顏色與字型大小
+    private static void writeStyleSheet(Writer writer, Styles styles) throws IOException {
+        writer.write("<style>\n");
+        writer.write(".s{fill:#808080}\n"); // Color.GRAY
+        writer.write(".l{stroke:#000;stroke-width:1}\n");
+        writer.write(".m{stroke:#000;stroke-width:1;fill:none}\n");
+        for (Map.Entry<Integer, Integer> entry : styles.backgrounds.entrySet()) {
+            Color color = new Color(entry.getKey(), true);
+            writer.write(".b" + entry.getValue() + "{fill:" + hex(color));
+            if (color.getAlpha() != 255) {
+                writer.write(";fill-opacity:" + (color.getAlpha() / 255f));
+            }
+            writer.write("}\n");
+        }
+        for (Map.Entry<Integer, Integer> entry : styles.fonts.entrySet()) {
+            writer.write(".f" + entry.getValue() + "{font-family:Arial,sans-serif;font-weight:bold;font-size:"
+                    + entry.getKey() + "px;fill:#000}\n");
+        }
+        writer.write("</style>\n");
+    }
+
+    // 寫出一個圖形；組合寫成群組並遞迴寫出子圖形
+    private static void writeShape(Writer writer, Shape shape, Styles styles) throws IOException {
+        if (shape instanceof Composite) {
+            writer.write("<g>\n");
+            for (Shape child : ((Composite) shape).getChildShapes()) {
+                writeShape(writer, child, styles);
+            }
+            writer.write("</g>\n");
+            return;
+        }
+        int w = shape.getWidth();
+        int h = shape.getHeight();
+        if (shape instanceof Oval) {
+            writer.write("<ellipse class=\"s\" cx=\"" + half(2 * shape.x + w) + "\" cy=\"" + half(2 * shape.y + h)
+                    + "\" rx=\"" + half(w) + "\" ry=\"" + half(h) + "\"/>\n");
+        } else {
+            writer.write("<rect class=\"s\" x=\"" + shape.x + "\" y=\"" + shape.y
+                    + "\" width=\"" + w + "\" height=\"" + h + "\"/>\n");
+        }
+        writeLabel(writer, shape, styles);
+    }
+
+    // 寫出標籤：背景與文字的位置和 Shape.drawLabel 相同，都來自快取的排版
+    private static void writeLabel(Writer writer, Shape shape, Styles styles) throws IOException {
+        LabelCache.Layout layout = shape.getLabelLayout();
+        if (layout == null) {
+            return;
+        }
+        int labelX = shape.x + shape.getWidth() / 2 - layout.labelWidth / 2;
+        int labelY = shape.y + shape.getHeight() / 2 - layout.labelHeight / 2;
+        String background = "b" + styles.backgrounds.get(shape.getLabelColor().getRGB());
+        if (layout.rectLabel) {
+            writer.write("<rect class=\"" + background + "\" x=\"" + labelX + "\" y=\"" + labelY
+                    + "\" width=\"" + layout.labelWidth + "\" height=\"" + layout.labelHeight + "\"/>\n");
+        } else {
+            writer.write("<ellipse class=\"" + background + "\" cx=\"" + half(2 * labelX + layout.labelWidth)
+                    + "\" cy=\"" + half(2 * labelY + layout.labelHeight)
+                    + "\" rx=\"" + half(layout.labelWidth) + "\" ry=\"" + half(layout.labelHeight) + "\"/>\n");
+        }
+        writer.write("<text class=\"f" + styles.fonts.get(shape.getFontSize()) + "\" x=\"" + (labelX + layout.textX)
+                + "\" y=\"" + (labelY + layout.textY) + "\">");
+        writeEscaped(writer, layout.text);
+        writer.write("</text>\n");
+    }
+
+    // 寫出一條連線，箭頭以 marker 參照
+    private static void writeLink(Writer writer, Link link) throws IOException {
+        String marker = switch (link.getType()) {
+            case ASSOCIATION -> "association";
+            case GENERALIZATION -> "generalization";
+            case COMPOSITION -> "composition";
+        };
+        writer.write("<line class=\"l\" x1=\"" + link.getStartPort().x + "\" y1=\"" + link.getStartPort().y
+                + "\" x2=\"" + link.getEndPort().x + "\" y2=\"" + link.getEndPort().y
+                + "\" marker-end=\"url(#" + marker + ")\"/>\n");
+    }
+
+    // 跳脫 XML 特殊字元
+    private static void writeEscaped(Writer writer, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> writer.write("&amp;");
+                case '<' -> writer.write("&lt;");
+                case '>' -> writer.write("&gt;");
+                default -> {
+                    // XML 不允許大部分控制字元
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+    }
+
+    // 以整數的一半表示座標，奇數時輸出 .5
+    private static String half(int doubled) {
+        if (doubled % 2 == 0) {
+            return Integer.toString(doubled / 2);
+        }
+        return (doubled < 0 ? "-" : "") + Math.abs(doubled) / 2 + ".5";
+    }
+
+    // 顏色的 #rrggbb 表示法
+    private static String hex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+    }
+
+    /**
+     * 圖表中出現的標籤樣式，依第一次出現的順序編號
+     */
+    private static final class Styles {
+        final Map<Integer, Integer> backgrounds = new LinkedHashMap<>(); // ARGB -> 背景 class 編號
+        final Map<Integer, Integer> fonts = new LinkedHashMap<>(); // 字型大小 -> 文字 class 編號
+
+        // 遞迴收集圖形與子圖形的標籤樣式
+        void collect(Shape shape) {
+            if (shape instanceof Composite) {
+                for (Shape child : ((Composite) shape).getChildShapes()) {
+                    collect(child);
+                }
+                return;
+            }
+            if (shape.getLabelText() == null || shape.getLabelText().isEmpty()) {
+                return;
+            }
+            backgrounds.putIfAbsent(shape.getLabelColor().getRGB(), backgrounds.size());
+            fonts.putIfAbsent(shape.getFontSize(), fonts.size());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package workflow;
+
+// 導入圖片、檔案與並行處理相關類別
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * TiledExporter 類別：把超大的圖表分成圖塊平行繪製，逐列串流寫成 PNG，適用於數十億像素的輸出
+ * 輸出圖片依圖塊高度切成橫向的帶狀區域，每個帶狀區域內的圖塊交給 ForkJoinPool 平行繪製，
+ * 每個圖塊只繪製與它相交的圖形與連線（由 DiagramPainter 的空間索引裁切）；
+ * 整條帶狀區域完成後逐列交給 PngStreamWriter 壓縮輸出，再重複使用同一組圖塊影像繪製下一條
+ * 記憶體用量只與「圖片寬度 × 圖塊高度」有關，與圖片總高度無關
+ * 使用方式：java --enable-preview -Djava.awt.headless=true -cp core/target/classes workflow.TiledExporter 圖表檔 輸出.png [縮放倍率] [圖塊大小]
+ */
+class TiledExporter {
+    private static final int DEFAULT_TILE_SIZE = 512; // 預設圖塊邊長（像素）
+    private static final int MARGIN = 10; // 圖片四周的留白（世界座標）
+
+    private final DiagramPainter painter;
+    private final double scale; // 世界座標到輸出像素的縮放倍率
+    private final int tileSize; // 圖塊邊長
+    private final ForkJoinPool pool;
+    private final Rectangle worldBounds; // 輸出的世界座標範圍（含留白）
+    private final int width; // 輸出圖片寬度
+    private final int height; // 輸出圖片高度
+
+    /**
+     * @param painter 圖表繪製器
+     * @param scale 縮放倍率，必須大於 0
+     * @param tileSize 圖塊邊長，必須大於 0
+     * @param pool 平行繪製圖塊使用的執行緒池
+     */
+    public TiledExporter(DiagramPainter painter, double scale, int tileSize, ForkJoinPool pool) {
+        if (scale <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("scale and tileSize must be positive");
+        }
+        this.painter = painter;
+        this.scale = scale;
+        this.tileSize = tileSize;
+        this.pool = pool;
+        this.worldBounds = painter.getBounds();
+        worldBounds.grow(MARGIN, MARGIN);
+        long w = (long) Math.ceil(worldBounds.width * scale);
+        long h = (long) Math.ceil(worldBounds.height * scale);
+        if (w > Integer.MAX_VALUE / 3 || h > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("image too large: " + w + "x" + h);
+        }
+        this.width = (int) Math.max(1, w);
+        this.height = (int) Math.max(1, h);
+    }
+
+    public TiledExporter(DiagramPainter painter, double scale) {
+        this(painter, scale, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    // 取得輸出圖片寬度
+    public int getWidth() {
+        return width;
+    }
+
+    // 取得輸出圖片高度
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 繪製所有圖塊並寫成 PNG 檔
+     * @param output 輸出檔案
+     */
+    public void export(Path output) throws IOException {
+        int columns = (width + tileSize - 1) / tileSize;
+        // 同一組圖塊影像重複用於每一條帶狀區域
+        BufferedImage[] tiles = new BufferedImage[columns];
+        for (int i = 0; i < columns; i++) {
+            int tileWidth = Math.min(tileSize, width - i * tileSize);
+            tiles[i] = new BufferedImage(tileWidth, tileSize, BufferedImage.TYPE_INT_RGB);
+        }
+        int[] row = new int[width]; // 組合一整列像素的緩衝區
+        DetailLevel level = DetailLevel.forScale(scale);
+
+        try (PngStreamWriter png = new PngStreamWriter(Files.newOutputStream(output), width, height)) {
+            for (int bandY = 0; bandY < height; bandY += tileSize) {
+                pool.invoke(new TileTask(tiles, bandY, 0, columns, level));
+                int bandHeight = Math.min(tileSize, height - bandY);
+                for (int ty = 0; ty < bandHeight; ty++) {
+                    for (int i = 0; i < columns; i++) {
+                        int[] pixels = ((DataBufferInt) tiles[i].getRaster().getDataBuffer()).getData();
+                        int tileWidth = tiles[i].getWidth();
+                        System.arraycopy(pixels, ty * tileWidth, row, i * tileSize, tileWidth);
+                    }
+                    png.writeRow(row, 0);
+                }
+            }
+        }
+    }
+
+    // 繪製單一圖塊：左上角為輸出圖片上的 (tileX, tileY)
+    private void renderTile(BufferedImage tile, int tileX, int tileY, DetailLevel level) {
+        Graphics2D g2d = tile.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+        AffineTransform transform = AffineTransform.getTranslateInstance(-tileX, -tileY);
+        transform.scale(scale, scale);
+        transform.translate(-worldBounds.x, -worldBounds.y);
+        g2d.transform(transform);
+        DetailLevel.setLabelScale(g2d, scale);
+        // 圖塊在世界座標中的範圍，向外取整避免邊緣的圖形被漏掉
+        int x1 = (int) Math.floor(tileX / scale) + worldBounds.x - 1;
+        int y1 = (int) Math.floor(tileY / scale) + worldBounds.y - 1;
+        int x2 = (int) Math.ceil((tileX + tile.getWidth()) / scale) + worldBounds.x + 1;
+        int y2 = (int) Math.ceil((tileY + tile.getHeight()) / scale) + worldBounds.y + 1;
+        painter.paint(g2d, new Rectangle(x1, y1, x2 - x1, y2 - y1), level);
+        g2d.dispose();
+    }
+
+    /**
+     * 以二分法把一條帶狀區域中的圖塊分給 ForkJoinPool 的工作執行緒
+     */
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // ForkJoinTask 實作 Serializable，但圖塊工作不會被序列化
+
+        private final transient BufferedImage[] tiles;
+        private final int bandY; // 帶狀區域的頂端
+        private final int from; // 負責的第一個圖塊欄位
+        private final int to; // 負責的最後一個圖塊欄位（不含）
+        private final DetailLevel level;
+
+        TileTask(BufferedImage[] tiles, int bandY, int from, int to, DetailLevel level) {
+            this.tiles = tiles;
+            this.bandY = bandY;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                renderTile(tiles[from], from * tileSize, bandY, level);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(tiles, bandY, from, mid, level), new TileTask(tiles, bandY, mid, to, level));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true"); // 必須在使用任何 AWT 類別之前設定
+        if (args.length < 2) {
+            System.err.println("usage: TiledExporter <diagram file> <output.png> [scale] [tile size]");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        double scale = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        int tileSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_TILE_SIZE;
+
+        long t0 = System.nanoTime();
+        Diagram diagram = input.getFileName().toString().endsWith(".json")
+                ? DiagramJson.read(input)
+                : DiagramFile.read(input);
+        long t1 = System.nanoTime();
+        TiledExporter exporter = new TiledExporter(new DiagramPainter(diagram), scale, tileSize, ForkJoinPool.commonPool());
+        exporter.export(Paths.get(args[1]));
+        long t2 = System.nanoTime();
+        System.out.printf(Locale.ROOT, "%s -> %s  %dx%d  load %.1f ms  export %.1f ms%n",
+                input.getFileName(), args[1], exporter.getWidth(), exporter.getHeight(),
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+    }
+}
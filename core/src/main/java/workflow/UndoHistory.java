@@ -0,0 +1,135 @@
+package workflow;
+
+// 導入必要的集合類別
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * UndoHistory 類別：復原與重做的堆疊，總大小受位元組預算限制
+ * 每筆紀錄以 EditCommand.estimatedBytes() 估計大小，超過預算時從最舊的紀錄開始淘汰（最新的一筆一定保留）
+ * 連續的 Move（或 MoveShapes）紀錄會合併成一筆，直到呼叫 markBoundary()（例如按下滑鼠開始新的拖曳）為止
+ * 新增紀錄時清除所有可重做的紀錄
+ */
+class UndoHistory {
+    static final long DEFAULT_BUDGET = 16L * 1024 * 1024; // 預設 16 MB
+
+    private final Deque<EditCommand> undoStack = new ArrayDeque<>(); // 最新的在最前面
+    private final Deque<EditCommand> redoStack = new ArrayDeque<>();
+    private long budget = DEFAULT_BUDGET;
+    private long bytes = 0; // 兩個堆疊的估計總大小
+    private boolean boundary = true; // 下一筆 Move 是否不與前一筆合併
+
+    /**
+     * 加入一筆剛完成的操作
+     * @param command 操作紀錄
+     */
+    void record(EditCommand command) {
+        while (!redoStack.isEmpty()) {
+            bytes -= redoStack.pop().estimatedBytes();
+        }
+        if (!boundary && command instanceof EditCommand.Move move
+                && undoStack.peek() instanceof EditCommand.Move previous) {
+            EditCommand.Move merged = previous.mergeWith(move);
+            if (merged != null) {
+                undoStack.pop();
+                bytes += merged.estimatedBytes() - previous.estimatedBytes();
+                undoStack.push(merged);
+                return;
+            }
+        }
+        if (!boundary && command instanceof EditCommand.MoveShapes move
+                && undoStack.peek() instanceof EditCommand.MoveShapes previous) {
+            EditCommand.MoveShapes merged = previous.mergeWith(move);
+            if (merged != null) {
+                undoStack.pop();
+                bytes += merged.estimatedBytes() - previous.estimatedBytes();
+                undoStack.push(merged);
+                return;
+            }
+        }
+        undoStack.push(command);
+        bytes += command.estimatedBytes();
+        boundary = false;
+        trim();
+    }
+
+    // 結束目前的連續移動，之後的 Move 會成為新的一筆紀錄
+    public void markBoundary() {
+        boundary = true;
+    }
+
+    // 取出最新一筆可復原的操作，沒有時返回 null
+    EditCommand popUndo() {
+        EditCommand command = undoStack.poll();
+        if (command != null) {
+            redoStack.push(command);
+            boundary = true;
+        }
+        return command;
+    }
+
+    // 取出最新一筆可重做的操作，沒有時返回 null
+    EditCommand popRedo() {
+        EditCommand command = redoStack.poll();
+        if (command != null) {
+            undoStack.push(command);
+            boundary = true;
+        }
+        return command;
+    }
+
+    // 檢查是否有可復原的操作
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    // 檢查是否有可重做的操作
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    // 可復原的操作數量
+    public int getUndoCount() {
+        return undoStack.size();
+    }
+
+    // 目前所有紀錄的估計大小（位元組）
+    public long getBytes() {
+        return bytes;
+    }
+
+    // 取得位元組預算
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * 設定位元組預算，超過時立即淘汰最舊的紀錄
+     * @param budget 預算，必須大於 0
+     */
+    public void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be positive: " + budget);
+        }
+        this.budget = budget;
+        trim();
+    }
+
+    // 清除所有紀錄
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        bytes = 0;
+        boundary = true;
+    }
+
+    // 超過預算時先丟棄可重做的紀錄，再從最舊的可復原紀錄開始淘汰
+    private void trim() {
+        while (bytes > budget && !redoStack.isEmpty()) {
+            bytes -= redoStack.removeLast().estimatedBytes();
+        }
+        while (bytes > budget && undoStack.size() > 1) {
+            bytes -= undoStack.removeLast().estimatedBytes();
+        }
+    }
+}
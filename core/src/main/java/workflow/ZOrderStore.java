@@ -0,0 +1,187 @@
+package workflow;
+
+// 導入必要的集合類別
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * ZOrderStore 類別：依深度排列的圖形集合，取代每次新增都整個重新排序的列表
+ * 以「每個深度一個桶」的方式儲存：深度由 TreeMap 管理，同一深度內以加入時取得的序號排序
+ * 繪製順序與原本的排序規則相同：深度大的先畫（在下層），深度相同時先加入的先畫
+ * 新增、移除與改變深度都是 O(log d + log n)（d 為不同深度的數量），兩個方向的走訪都不需要複製
+ * 桶內以序號為鍵，移除後的圖形可以用原本的序號放回原來的上下位置（復原操作需要）
+ */
+class ZOrderStore implements Iterable<Shape> {
+    // 深度 -> 該深度的圖形（序號 -> 圖形），鍵值由大到小排列，也就是由下層到上層
+    private final TreeMap<Integer, NavigableMap<Long, Shape>> buckets = new TreeMap<>(Collections.reverseOrder());
+    // 每個圖形加入時取得的序號，用於比較同深度圖形的上下關係
+    private final Map<Shape, Long> sequence = new IdentityHashMap<>();
+    private long nextSequence = 0; // 下一個序號
+    private int size = 0; // 圖形總數
+
+    // 繪製順序比較器：下層（先繪製）的圖形排在前面
+    private final Comparator<Shape> paintOrder = (s1, s2) -> {
+        int byDepth = Integer.compare(s2.getDepth(), s1.getDepth());
+        if (byDepth != 0) {
+            return byDepth;
+        }
+        return Long.compare(sequence.getOrDefault(s1, Long.MAX_VALUE), sequence.getOrDefault(s2, Long.MAX_VALUE));
+    };
+
+    /**
+     * 加入圖形，放在同深度圖形的最上層
+     * @param shape 要加入的圖形
+     */
+    public void add(Shape shape) {
+        add(shape, nextSequence);
+    }
+
+    /**
+     * 以指定的序號加入圖形，用於把移除的圖形放回原本的上下位置
+     * @param shape 要加入的圖形
+     * @param seq 圖形原本的序號（sequenceOf 的結果）
+     */
+    public void add(Shape shape, long seq) {
+        if (sequence.containsKey(shape)) {
+            return; // 已存在則不重複加入
+        }
+        sequence.put(shape, seq);
+        nextSequence = Math.max(nextSequence, seq + 1);
+        buckets.computeIfAbsent(shape.getDepth(), d -> new TreeMap<>()).put(seq, shape);
+        size++;
+    }
+
+    /**
+     * 取得圖形的序號，同深度的圖形中序號大的在上層
+     * @param shape 圖形
+     * @return 序號，不在集合中時為 -1
+     */
+    public long sequenceOf(Shape shape) {
+        Long seq = sequence.get(shape);
+        return seq == null ? -1 : seq;
+    }
+
+    /**
+     * 移除圖形
+     * @param shape 要移除的圖形
+     * @return 圖形原本是否在集合中
+     */
+    public boolean remove(Shape shape) {
+        Long seq = sequence.remove(shape);
+        if (seq == null) {
+            return false;
+        }
+        for (Map.Entry<Integer, NavigableMap<Long, Shape>> entry : bucketsFor(shape, seq)) {
+            if (entry.getValue().remove(seq, shape)) {
+                if (entry.getValue().isEmpty()) {
+                    buckets.remove(entry.getKey()); // 空桶直接移除
+                }
+                break;
+            }
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * 改變圖形的深度，圖形會移到新深度的最上層
+     * 集合中的圖形必須透過這個方法改變深度，直接呼叫 Shape.setDepth 會使桶的位置失準
+     * @param shape 圖形
+     * @param depth 新的深度值
+     */
+    public void changeDepth(Shape shape, int depth) {
+        if (remove(shape)) {
+            shape.setDepth(depth);
+            add(shape);
+        } else {
+            shape.setDepth(depth);
+        }
+    }
+
+    // 取得圖形所在的桶；深度未經 changeDepth 就被改變時，退回逐一搜尋所有桶
+    private Iterable<Map.Entry<Integer, NavigableMap<Long, Shape>>> bucketsFor(Shape shape, long seq) {
+        NavigableMap<Long, Shape> bucket = buckets.get(shape.getDepth());
+        if (bucket != null && bucket.get(seq) == shape) {
+            return Collections.singletonList(Map.entry(shape.getDepth(), bucket));
+        }
+        return buckets.entrySet();
+    }
+
+    // 檢查圖形是否在集合中
+    public boolean contains(Shape shape) {
+        return sequence.containsKey(shape);
+    }
+
+    // 取得圖形總數
+    public int size() {
+        return size;
+    }
+
+    // 檢查集合是否為空
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 清除所有圖形
+    public void clear() {
+        buckets.clear();
+        sequence.clear();
+        size = 0;
+    }
+
+    // 取得繪製順序比較器（下層在前），供空間索引排序查詢結果
+    public Comparator<Shape> paintOrder() {
+        return paintOrder;
+    }
+
+    /**
+     * 由下層到上層走訪（繪製順序）
+     */
+    @Override
+    public Iterator<Shape> iterator() {
+        return new BucketIterator(buckets.values().iterator(), false);
+    }
+
+    /**
+     * 由上層到下層走訪（點擊判斷順序）
+     * @return 可走訪的檢視，不會複製資料
+     */
+    public Iterable<Shape> frontToBack() {
+        return () -> new BucketIterator(buckets.descendingMap().values().iterator(), true);
+    }
+
+    // 依序串接各個桶的走訪器
+    private static class BucketIterator implements Iterator<Shape> {
+        private final Iterator<NavigableMap<Long, Shape>> bucketIterator;
+        private final boolean reversed; // 是否反向走訪桶內的圖形
+        private Iterator<Shape> current = Collections.emptyIterator();
+
+        BucketIterator(Iterator<NavigableMap<Long, Shape>> bucketIterator, boolean reversed) {
+            this.bucketIterator = bucketIterator;
+            this.reversed = reversed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && bucketIterator.hasNext()) {
+                NavigableMap<Long, Shape> bucket = bucketIterator.next();
+                current = reversed ? bucket.descendingMap().values().iterator() : bucket.values().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Shape next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,804 @@
+package workflow;
+
+// 導入必要的 Java AWT 和 Swing 套件
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.Serial;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * Canvas 類別，繼承自 JPanel，用於處理圖形的繪製和互動
+ */
+class Canvas extends JPanel {
+    @Serial
+    private static final long serialVersionUID = 1L; // JPanel 實作 Serializable，但畫布不會被序列化
+
+    private final transient DiagramModel model; // 圖表的資料與編輯邏輯，畫布只負責互動與繪製
+    private transient Shape startShape = null;// 記錄連線起始的圖形
+    private Point startPort = null;// 記錄連線的起始連接點
+    private LinkType currentLinkType = LinkType.ASSOCIATION;// 目前的連線類型，預設為關聯關係
+    private Point selectionStartPoint = null;// 記錄框選的起始點
+    private Rectangle selectionRect = null;// 框選時的矩形範圍
+    private boolean isDragging = false; // 判斷是否正在拖曳圖形
+    private Point dragStartPoint = null; // 記錄拖曳的起始點座標
+    private Rectangle dirtyRegion = null; // 累積需要重繪的區域，由 repaintDirty() 一次送出
+    private boolean dragLayerCacheEnabled = true; // 是否在拖曳時使用靜態圖層快取
+    private transient BufferedImage staticLayer = null; // 拖曳期間不會變動的圖形與連線的點陣快取
+    private transient Shape[] dragShapes = null; // 按下滑鼠時決定要拖曳的頂層圖形（點選的圖形或整個多重選取），依繪製順序
+    private transient Shape[] staticLayerShapes = null; // 建立靜態圖層快取時被拖曳（未畫進快取）的圖形
+    private transient Shape staticLayerSelection = null; // 建立靜態圖層快取時模型的選取圖形
+    private final transient Set<Shape> dragShapeSet = Collections.newSetFromMap(new IdentityHashMap<>()); // 同 staticLayerShapes，供繪製時排除
+    private final transient Set<Link> dragLinks = Collections.newSetFromMap(new IdentityHashMap<>()); // 拖曳中圖形相關連線的聯集（即時繪製）
+    private final transient FrameScheduler frameScheduler = new FrameScheduler(this::applyDrag); // 依畫面節奏合併拖曳事件
+    private Point pendingDragPoint = null; // 最新一次拖曳事件的座標（世界座標），尚未套用到圖形或選取框
+    private final transient Viewport viewport = new Viewport(); // 檢視區：縮放與平移
+    private Point panStartPoint = null; // 平移檢視區時上一次的滑鼠螢幕座標
+    private static final double ZOOM_STEP = 1.25; // 放大/縮小按鈕每次的縮放比例
+    private boolean levelOfDetailEnabled = true; // 是否依縮放倍率與密度簡化繪製
+    private Rectangle densityView = null; // 計算 visibleElementCount 時的可見範圍（世界座標），null 表示需要重新計算
+    private int visibleElementCount = 0; // 可見範圍內的圖形與連線數量，用於依密度選擇細節層級
+    private final transient CanvasStats stats = new CanvasStats(); // 繪製耗時與快取命中率等即時統計（JMX）
+    private final transient PerformanceHud hud = new PerformanceHud(this); // 畫在左上角的效能資訊面板
+    private long firstInputNanos = 0; // 上次繪製之後第一個輸入事件的時間，0 表示沒有
+    private int shapesDrawn = 0; // 本次繪製畫出的圖形數量
+    private int linksDrawn = 0; // 本次繪製畫出的連線數量
+
+    /**
+     * 定義畫布的操作模式
+     * RECT: 繪製矩形模式
+     * OVAL: 繪製橢圓模式
+     * SELECT: 選取模式
+     * LINK: 連線模式
+     * NONE: 無動作模式
+     */
+    enum Mode {
+        RECT, OVAL, SELECT, LINK, NONE
+    }
+    
+    private Mode currentMode = Mode.NONE; // 預設為 NONE 模式
+
+    /**
+     * 新增圖形到畫布
+     * @param shape 要新增的圖形
+     */
+    public void addShape(Shape shape) {
+        clearSelection();// 清除連線的暫存資料
+        model.addShape(shape);// 模型通知後只重繪新圖形所在的區域
+    }
+
+    /**
+     * 將選取的多個圖形組合成一個複合圖形
+     */
+    public void groupSelectedShapes() {
+        model.groupSelectedShapes();
+    }
+
+    /**
+     * 解散選取的複合圖形
+     */
+    public void ungroupSelectedComposite() {
+        if (model.ungroupSelectedComposite()) {
+            clearSelection();
+        }
+    }
+
+    /**
+     * 模型變動時的處理：圖形集合改變時丟棄靜態圖層快取，並重繪變動的範圍
+     * @param region 變動範圍（世界座標），null 表示整個畫面
+     * @param structural 是否有圖形被加入、移除或重新組合
+     */
+    private void diagramChanged(Rectangle region, boolean structural) {
+        stats.setCounts(model.getShapeCount(), model.getLinkCount());
+        // 被拖曳的圖形不再是選取的圖形時（例如其他程式清除了選取），快取也不能再使用
+        if (structural || (staticLayer != null && model.getSelectedShape() != staticLayerSelection)) {
+            invalidateStaticLayer();
+        }
+        if (structural) {
+            dragShapes = null; // 拖曳中的圖形可能已被移除或組合
+            densityView = null; // 圖形數量改變，重新計算密度
+        }
+        if (region == null) {
+            dirtyRegion = null;
+            repaint();
+        } else {
+            markDirty(region);
+            repaintDirty();
+        }
+    }
+
+    /**
+     * 將指定區域加入待重繪範圍
+     * @param region 需要重繪的區域（世界座標）
+     */
+    private void markDirty(Rectangle region) {
+        if (dirtyRegion == null) {
+            dirtyRegion = new Rectangle(region);
+        } else {
+            dirtyRegion.add(region);
+        }
+    }
+
+    // 只重繪累積的待重繪範圍，取代整個畫布的 repaint()
+    // 待重繪範圍以世界座標記錄，送出前轉換成螢幕座標，多留 1 像素避免縮放時的捨入誤差
+    private void repaintDirty() {
+        if (dirtyRegion != null) {
+            Rectangle screen = viewport.toScreen(dirtyRegion);
+            screen.grow(1, 1);
+            repaint(screen);
+            dirtyRegion = null;
+        }
+    }
+
+    /**
+     * 覆寫 JPanel 的 paintComponent 方法，負責繪製所有圖形元素
+     * 記錄繪製耗時與輸入延遲到統計資料，錄製 JFR 時另外送出 EditorEvents.Paint 事件；
+     * 效能資訊面板開啟時最後畫在最上層
+     * @param g Graphics 物件，用於繪圖
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        EditorEvents.Paint event = new EditorEvents.Paint();
+        event.begin();
+        long start = System.nanoTime();
+        shapesDrawn = 0;
+        linksDrawn = 0;
+        boolean fromDragLayer = staticLayer != null;
+
+        // 取得本次需要重繪的螢幕區域，換算成世界座標後，區域外的圖形與連線直接略過
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        paintCanvas(g, viewport.toWorld(clip));
+
+        long end = System.nanoTime();
+        long inputLatency = firstInputNanos != 0 ? end - firstInputNanos : -1;
+        firstInputNanos = 0;
+        stats.recordPaint(end - start, fromDragLayer, inputLatency);
+        if (hud.isVisible()) {
+            hud.frameFinished(clip, end - start, shapesDrawn, model.getShapeCount(),
+                    linksDrawn, model.getLinkCount(), model.getLastLinkUpdateCount());
+            hud.paint(g, clip);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.shapesDrawn = shapesDrawn;
+            event.linksDrawn = linksDrawn;
+            event.clipArea = (long) clip.width * clip.height;
+            event.fromDragLayer = fromDragLayer;
+            event.inputLatency = inputLatency;
+            event.commit();
+        }
+    }
+
+    /**
+     * 繪製畫布內容
+     * @param g Graphics 物件，用於繪圖
+     * @param worldClip 需要重繪的世界座標範圍
+     */
+    private void paintCanvas(Graphics g, Rectangle worldClip) {
+        // 調用父類別的 paintComponent 方法，確保正確的繪製行為
+        super.paintComponent(g);
+
+        // 拖曳中：貼上靜態圖層快取（螢幕座標），只即時繪製被拖曳的圖形與其相關連線
+        if (staticLayer != null) {
+            g.drawImage(staticLayer, 0, 0, null);
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.transform(viewport.getTransform());
+            LabelCache.preparePaint(g2d);
+            DetailLevel level = prepareDetailLevel(g2d);
+            for (Shape shape : staticLayerShapes) {
+                if (worldClip.intersects(shape.getPaintBounds())) {
+                    shape.draw(g2d, shape.isSelected(), level);
+                    shapesDrawn++;
+                }
+            }
+            // 從連線索引取得重繪範圍內的連線，只畫拖曳中圖形的相關連線，順序與一般繪製相同
+            List<Link> visibleLinks = model.queryLinks(worldClip);
+            for (int i = visibleLinks.size() - 1; i >= 0; i--) {
+                Link link = visibleLinks.get(i);
+                if (dragLinks.contains(link)) {
+                    link.draw(g2d, level);
+                    linksDrawn++;
+                }
+            }
+            g2d.dispose();
+            return;
+        }
+
+        // 之後的繪製都使用世界座標
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.transform(viewport.getTransform());
+        paintScene(g2d, worldClip, false);
+
+        // 繪製框選矩形
+        if (selectionRect != null) {
+            g2d.setColor(Color.BLUE);
+            // 將 Graphics 轉換為 Graphics2D 以使用進階繪圖功能
+            // setStroke:設定虛線樣式：
+            // - 線條寬度：1.0f
+            // - 線條端點樣式：BasicStroke.CAP_BUTT
+            // - 線條連接處樣式：BasicStroke.JOIN_MITER
+            // - 10.0f:限制尖角的長度
+            // - new float[]{5.0f}: 虛線模式（表示虛線段的長度）
+            // - 0.0f: 虛線偏移量
+            // 線條寬度除以縮放倍率，縮放時選取框在螢幕上仍維持 1 像素寬
+            float width = (float) (1.0 / viewport.getScale());
+            g2d.setStroke(new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10.0f, new float[]{5.0f * width}, 0.0f));
+            g2d.drawRect(selectionRect.x, selectionRect.y, selectionRect.width, selectionRect.height);// 繪製框選矩形
+        }
+        g2d.dispose();
+    }
+
+    /**
+     * 繪製與可見的世界範圍相交的圖形與連線
+     * @param g2d 已套用檢視區轉換的繪圖環境
+     * @param worldClip 可見的世界座標範圍
+     * @param excludeDragged 是否略過拖曳中的圖形（dragShapeSet）與其相關連線（dragLinks）
+     */
+    private void paintScene(Graphics2D g2d, Rectangle worldClip, boolean excludeDragged) {
+        LabelCache.preparePaint(g2d); // 每次繪製只檢查一次轉換，不必每個標籤都取得轉換矩陣
+        DetailLevel level = prepareDetailLevel(g2d);
+        // 從空間索引取得與可見範圍相交的圖形（上層在前），由下往上繪製
+        List<Shape> visibleShapes = model.query(worldClip);
+        for (int i = visibleShapes.size() - 1; i >= 0; i--) {
+            Shape shape = visibleShapes.get(i);
+            if (!excludeDragged || !dragShapeSet.contains(shape)) {
+                // 呼叫每個圖形的 draw 方法，傳入是否被選取的狀態
+                shape.draw(g2d, shape.isSelected(), level);
+                shapesDrawn++;
+            }
+        }
+        // 最簡層級：所有連線合併成一條路徑，只呼叫一次 draw
+        Path2D.Float batch = level == DetailLevel.MINIMAL ? new Path2D.Float() : null;
+        // 從連線索引取得與可見範圍相交的連線（後加入的在前），依加入的先後繪製
+        List<Link> visibleLinks = model.queryLinks(worldClip);
+        for (int i = visibleLinks.size() - 1; i >= 0; i--) {
+            Link link = visibleLinks.get(i);
+            if (!excludeDragged || !dragLinks.contains(link)) {
+                if (batch != null) {
+                    link.appendTo(batch);
+                } else {
+                    // 繪製連線本身
+                    link.draw(g2d, level);
+                }
+                linksDrawn++;
+            }
+        }
+        if (batch != null) {
+            g2d.setColor(Color.BLACK);
+            g2d.draw(batch);
+        }
+    }
+
+    /**
+     * 取得目前縮放倍率與可見元素密度對應的細節層級，並讓標籤依投影後的字型大小決定是否畫文字
+     * 密度以整個可見範圍計算，而不是這次重繪的區域，局部重繪與整個畫面重繪才會使用相同的層級
+     * @param g2d 這次繪製使用的繪圖環境
+     * @return 細節層級
+     */
+    private DetailLevel prepareDetailLevel(Graphics2D g2d) {
+        if (!levelOfDetailEnabled) {
+            return DetailLevel.FULL;
+        }
+        DetailLevel.setLabelScale(g2d, viewport.getScale());
+        return DetailLevel.select(viewport.getScale(), getVisibleElementCount());
+    }
+
+    // 取得可見範圍內的圖形與連線數量（由圖形與連線的空間索引計算）；只在檢視區、畫布大小或圖形集合改變後重新計算
+    private int getVisibleElementCount() {
+        Rectangle view = viewport.toWorld(new Rectangle(0, 0, getWidth(), getHeight()));
+        if (!view.equals(densityView)) {
+            visibleElementCount = model.countElements(view);
+            densityView = view;
+        }
+        return visibleElementCount;
+    }
+
+    /**
+     * 設定是否依縮放倍率與可見元素密度簡化繪製（細節層級）
+     * @param enabled true 表示啟用，false 時一律完整繪製
+     */
+    public void setLevelOfDetailEnabled(boolean enabled) {
+        this.levelOfDetailEnabled = enabled;
+        viewChanged();
+    }
+
+    /**
+     * 拖曳開始時建立靜態圖層快取
+     * 將被拖曳圖形（可能是整個多重選取）以外的所有圖形，以及與它們無關的連線繪製到一張與畫布同尺寸的影像中，
+     * 拖曳期間每一格畫面只需貼上這張影像，再疊上被拖曳的圖形與相關連線
+     * 使用 createCompatibleImage 建立與螢幕相容的影像，Java2D 會自動將它快取在顯示卡記憶體中
+     */
+    private void buildStaticLayer() {
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        dragShapeSet.clear();
+        Collections.addAll(dragShapeSet, dragShapes);
+        dragLinks.clear();
+        dragLinks.addAll(model.collectLinks(dragShapes));
+
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        BufferedImage image = config != null
+                ? config.createCompatibleImage(getWidth(), getHeight())
+                : new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, getWidth(), getHeight());
+        // 只需要繪製目前可見的部分
+        Rectangle worldClip = viewport.toWorld(new Rectangle(0, 0, getWidth(), getHeight()));
+        g2d.transform(viewport.getTransform());
+        paintScene(g2d, worldClip, true);
+        g2d.dispose();
+        staticLayer = image;
+        staticLayerShapes = dragShapes;
+        staticLayerSelection = model.getSelectedShape();
+        stats.recordDragLayerBuild();
+    }
+
+    // 拖曳結束或畫面內容有結構性變動時丟棄靜態圖層快取
+    private void invalidateStaticLayer() {
+        if (staticLayer != null) {
+            staticLayer.flush();
+            staticLayer = null;
+            // 回到一般繪製模式，被拖曳的圖形與相關連線需要依照原本的深度順序重繪
+            for (Shape shape : staticLayerShapes) {
+                markDirty(shape.getPaintBounds());
+            }
+            for (Link link : dragLinks) {
+                markDirty(link.getBounds());
+            }
+            dragShapeSet.clear();
+            dragLinks.clear();
+            staticLayerShapes = null;
+            staticLayerSelection = null;
+        }
+    }
+
+    /**
+     * 設定是否在拖曳時使用靜態圖層快取
+     * @param enabled true 表示啟用
+     */
+    public void setDragLayerCacheEnabled(boolean enabled) {
+        this.dragLayerCacheEnabled = enabled;
+        if (!enabled) {
+            invalidateStaticLayer();
+            repaintDirty();
+        }
+    }
+
+    public Canvas() {
+        this(new DiagramModel());
+    }
+
+    /**
+     * Canvas 類別的建構函式
+     * 初始化畫布並設定滑鼠事件監聽器
+     * 處理所有的使用者互動，包括繪圖、選取、拖曳和連線等操作
+     * @param model 要顯示與編輯的圖表模型，畫布會註冊為它的監聽器
+     */
+    public Canvas(DiagramModel model) {
+        this.model = model;
+        model.addListener(this::diagramChanged);
+
+        // 畫布尺寸改變時，靜態圖層快取的大小已不正確
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                invalidateStaticLayer();
+            }
+        });
+
+        // 新增滑鼠事件監聽器，處理按下和放開事件
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                EditorEvents.MouseInput event = beginInput();
+                handleMousePressed(e);
+                endInput(event, "pressed");
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                EditorEvents.MouseInput event = beginInput();
+                handleMouseReleased(e);
+                endInput(event, "released");
+            }
+        });
+
+        // 新增滑鼠移動事件監聽器，處理拖曳操作
+        addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                EditorEvents.MouseInput event = beginInput();
+                handleMouseDragged(e);
+                endInput(event, "dragged");
+            }
+        });
+
+        // 滑鼠滾輪以游標位置為中心縮放
+        addMouseWheelListener(e -> {
+            EditorEvents.MouseInput event = beginInput();
+            viewport.zoomAt(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            viewChanged();
+            endInput(event, "wheel");
+        });
+    }
+
+    // 滑鼠處理開始：記錄輸入時間（計算到下一次繪製完成的延遲），並開始 JFR 事件計時
+    private EditorEvents.MouseInput beginInput() {
+        if (firstInputNanos == 0) {
+            firstInputNanos = System.nanoTime();
+        }
+        EditorEvents.MouseInput event = new EditorEvents.MouseInput();
+        event.begin();
+        return event;
+    }
+
+    // 滑鼠處理結束：錄製 JFR 時送出事件
+    private void endInput(EditorEvents.MouseInput event, String action) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.mode = currentMode.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * 處理滑鼠按下事件
+     * @param e MouseEvent 包含滑鼠事件的相關資訊
+     */
+    private void handleMousePressed(MouseEvent e) {
+        frameScheduler.flush(); // 套用前一次操作殘留的拖曳輸入
+        model.markBoundary(); // 新的拖曳在復原紀錄中是新的一筆移動
+        // 中鍵或右鍵拖曳用於平移檢視區
+        if (SwingUtilities.isMiddleMouseButton(e) || SwingUtilities.isRightMouseButton(e)) {
+            panStartPoint = e.getPoint();
+            return;
+        }
+        Point clickPoint = viewport.toWorld(e.getPoint());// 獲取點擊座標（換算成世界座標）
+        isDragging = false; // 初始化為非拖曳狀態
+
+        // 根據當前模式執行不同操作
+        if (currentMode == Mode.RECT) {
+            // 矩形模式：在點擊位置創建新的矩形
+            Rect rect = new Rect(clickPoint.x, clickPoint.y);
+            addShape(rect);// 將新建的矩形加入到圖形集合中（已重繪所在區域）
+        } else if (currentMode == Mode.OVAL) {
+            // 橢圓模式：在點擊位置創建新的橢圓
+            Oval oval = new Oval(clickPoint.x, clickPoint.y);
+            addShape(oval);// 將新建的橢圓加入到圖形集合中
+        } else if (currentMode == Mode.SELECT) {
+            // 選取模式
+            // 從空間索引找出點擊位置上最上層的圖形
+            Shape shape = model.findTopmostShapeAt(clickPoint.x, clickPoint.y, null);
+            Shape[] selected = shape != null && shape.isSelected() ? model.getSelectedShapes() : null;
+            if (selected != null && selected.length > 1) {
+                // 按在多重選取（例如框選）中的圖形上：保留選取，拖曳整個選取
+                dragShapes = selected;
+                dragStartPoint = clickPoint;
+            } else if (shape != null) {
+                // 清除其他物件的選取狀態，設定當前物件為選取狀態（重繪以顯示連接埠）
+                clearSelection();
+                model.select(shape);
+                dragShapes = new Shape[]{shape};
+
+                // 記錄拖曳的起始點，用於後續計算移動距離
+                dragStartPoint = clickPoint;
+            } else {
+                // 如果沒有點擊到任何物件，啟動框選模式
+                clearSelection();// 清除所有選取狀態
+                // 記錄框選的起始點
+                selectionStartPoint = clickPoint;
+                // 創建框選矩形，初始大小為 0
+                selectionRect = new Rectangle(clickPoint.x, clickPoint.y, 0, 0);
+                markSelectionRectDirty();
+            }
+        // 連線模式：尋找起始連線的圖形和連接點
+        } else if (currentMode == Mode.LINK) {
+            Shape shape = model.findTopmostShapeAt(clickPoint.x, clickPoint.y, null);
+            if (shape != null) {
+                startShape = shape;// 設定連線的起始圖形
+                startPort = shape.getClosestPort(clickPoint.x, clickPoint.y);// 獲取最近的連接點作為連線的起點
+            }
+        }
+        repaintDirty();// 重新繪製有變動的區域
+    }
+
+    /**
+     * 處理滑鼠放開事件
+     * @param e MouseEvent 包含滑鼠事件的相關資訊
+     */
+    private void handleMouseReleased(MouseEvent e) {
+        if (panStartPoint != null) {
+            panStartPoint = null; // 結束平移
+            return;
+        }
+        frameScheduler.flush(); // 先套用尚未處理的拖曳輸入，確保放開時的位置正確
+        Point releasePoint = viewport.toWorld(e.getPoint()); // 放開位置（世界座標）
+        if (currentMode == Mode.SELECT) {
+            if (selectionRect != null) {
+                // 框選模式：選取框內的所有物件
+                // 按下滑鼠時已清除所有選取狀態，這裡只需選取與選取框相交的圖形
+                model.selectIntersecting(selectionRect);
+                markSelectionRectDirty();// 擦除選取框
+                selectionRect = null;// 清除選取框
+                selectionStartPoint = null;// 清除框選起始點
+            }
+            // 拖曳模式的連線已在每次拖曳時更新，這裡不需要再重新計算
+            if (dragShapes != null) {
+                model.markBoundary(); // 整次拖曳記錄成一筆復原紀錄
+            }
+            dragShapes = null;
+            invalidateStaticLayer();// 拖曳結束，回到一般繪製模式
+        } else if (currentMode == Mode.LINK && startShape != null) {
+            // 連線模式：完成連線的建立
+            // 檢查滑鼠放開位置是否在某個圖形上，且不是起始圖形
+            Shape shape = model.findTopmostShapeAt(releasePoint.x, releasePoint.y, startShape);
+            if (shape != null) {
+                Point endPort = shape.getClosestPort(releasePoint.x, releasePoint.y);// 獲取目標圖形最近的連接點
+                model.addLink(startShape, startPort, shape, endPort, currentLinkType);// 創建新的連線
+            }
+            // 清除連線的暫存資料
+            startShape = null;
+            startPort = null;
+        }
+        repaintDirty();// 重新繪製有變動的區域
+        isDragging = false; // 重置拖曳狀態
+    }
+
+    /**
+     * 處理滑鼠拖曳事件
+     * @param e MouseEvent 包含滑鼠事件的相關資訊
+     */
+    private void handleMouseDragged(MouseEvent e) {
+        if (panStartPoint != null) {
+            // 平移檢視區：整個畫面都會改變
+            viewport.pan(e.getX() - panStartPoint.x, e.getY() - panStartPoint.y);
+            panStartPoint = e.getPoint();
+            viewChanged();
+            return;
+        }
+        isDragging = true; // 設定為拖曳狀態
+        // 只記錄最新座標（世界座標），由畫面節奏排程器在每格畫面最多套用一次
+        pendingDragPoint = viewport.toWorld(e.getPoint());
+        frameScheduler.request();
+    }
+
+    // 檢視區縮放或平移後，靜態圖層快取已不正確，整個畫面重繪
+    private void viewChanged() {
+        frameScheduler.flush();
+        invalidateStaticLayer();
+        dirtyRegion = null;
+        repaint();
+    }
+
+    // 以畫布中心放大
+    public void zoomIn() {
+        viewport.zoomAt(ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+        viewChanged();
+    }
+
+    // 以畫布中心縮小
+    public void zoomOut() {
+        viewport.zoomAt(1 / ZOOM_STEP, getWidth() / 2, getHeight() / 2);
+        viewChanged();
+    }
+
+    // 恢復原始大小並取消平移
+    public void resetView() {
+        viewport.reset();
+        viewChanged();
+    }
+
+    /**
+     * 取得畫布的檢視區
+     * @return 檢視區
+     */
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * 套用累積的拖曳輸入（每格畫面最多執行一次）
+     * 同一格畫面內的多個拖曳事件只保留最新座標，位移量由上次套用的位置算起，因此會自然累加
+     */
+    private void applyDrag() {
+        if (pendingDragPoint == null) {
+            return;
+        }
+        Point point = pendingDragPoint;
+        pendingDragPoint = null;
+        if (currentMode == Mode.SELECT && dragShapes != null && dragStartPoint != null) {
+            // 第一次拖曳時建立靜態圖層快取
+            if (dragLayerCacheEnabled && staticLayer == null) {
+                buildStaticLayer();
+            }
+            // 計算圖形需要移動的距離
+            int dx = point.x - dragStartPoint.x;
+            int dy = point.y - dragStartPoint.y;
+            // 以同一個位移量移動所有拖曳中的圖形，相關連線的聯集只更新一次（模型通知後重繪移動前後範圍的聯集）
+            model.moveShapes(dragShapes, dx, dy);
+            // 更新拖曳起始點
+            dragStartPoint = point;
+        } else if (currentMode == Mode.SELECT && selectionRect != null && selectionStartPoint != null) {//框選模式
+            // 更新框選矩形的大小
+            // 計算矩形的左上角座標（取起始點和當前點的較小值）
+            int x = Math.min(selectionStartPoint.x, point.x);
+            int y = Math.min(selectionStartPoint.y, point.y);
+            // 計算矩形的寬度和高度（使用起始點和當前點的差值的絕對值）
+            int width = Math.abs(selectionStartPoint.x - point.x);
+            int height = Math.abs(selectionStartPoint.y - point.y);
+            // 設定選取框的新邊界，新舊選取框的範圍都需要重繪
+            markSelectionRectDirty();
+            selectionRect.setBounds(x, y, width, height);
+            markSelectionRectDirty();
+        }
+        repaintDirty();// 重新繪製有變動的區域
+    }
+
+    /**
+     * 取得拖曳輸入的畫面節奏排程器，可設定每秒畫面數並查詢被合併的事件數量
+     * @return 畫面節奏排程器
+     */
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
+    }
+
+    // 將選取框（含虛線寬度）加入待重繪範圍
+    private void markSelectionRectDirty() {
+        markDirty(new Rectangle(selectionRect.x - 1, selectionRect.y - 1, selectionRect.width + 3, selectionRect.height + 3));
+    }
+
+    /**
+     * 標籤等外觀屬性改變後通知畫布
+     * 重新登記圖形在空間索引中的繪製範圍（標籤大小可能改變）並重繪
+     * @param shape 外觀已改變的圖形
+     */
+    public void shapeChanged(Shape shape) {
+        model.shapeChanged(shape);
+    }
+
+    /**
+     * 標籤修改後通知畫布，並記錄為可復原的操作
+     * @param shape 標籤已改變的圖形
+     * @param before 修改前的樣式
+     */
+    public void labelChanged(Shape shape, LabelStyle before) {
+        model.labelChanged(shape, before);
+    }
+
+    /**
+     * 復原最近一次的編輯操作
+     */
+    public void undo() {
+        frameScheduler.flush(); // 先套用尚未處理的拖曳輸入，讓它成為可復原的一部分
+        clearSelection();
+        model.undo();
+    }
+
+    /**
+     * 重做最近一次復原的編輯操作
+     */
+    public void redo() {
+        frameScheduler.flush();
+        clearSelection();
+        model.redo();
+    }
+
+    /**
+     * 清除所有圖形的選取狀態
+     * 重置所有與選取和連線相關的暫存變數
+     */
+    private void clearSelection() {
+        // 停止拖曳，拖曳中的圖形回到一般繪製模式
+        dragShapes = null;
+        invalidateStaticLayer();
+        // 將所有圖形的選取狀態設為 false，原本被選取的圖形由模型通知重繪以移除連接埠
+        model.clearSelection();
+        // 重置所有相關的參考變數
+        startShape = null;// 清除連線的起始圖形
+        startPort = null;// 清除連線的起始連接點
+    }
+    /**
+     * 設定當前的操作模式
+     * 切換模式時會清除所有選取狀態並重繪畫面
+     * @param mode 要設定的新操作模式（如：SELECT、RECT、OVAL、LINK 等）
+     */
+    public void setMode(Mode mode) {
+        frameScheduler.flush();
+        invalidateStaticLayer();
+        this.currentMode = mode; // 更新當前模式
+        clearSelection();// 清除所有選取狀態
+        repaintDirty();// 重新繪製有變動的區域
+    }
+    /**
+     * 取得當前的操作模式 
+     * @return 當前的操作模式
+     */
+    public Mode getMode() {
+        return currentMode;
+    }
+    /**
+     * 設定當前的連線類型
+     * 用於決定新建立的連線的樣式
+     * @param type 要設定的連線類型
+     */
+    public void setCurrentLinkType(LinkType type) {
+        this.currentLinkType = type;
+    }
+    /**
+     * 取得當前的連線類型
+     * @return 當前的連線類型
+     */
+    public LinkType getCurrentLinkType() {
+        return currentLinkType;
+    }
+    /**
+     * 取得目前選中的圖形
+     * @return 當前選中的圖形物件，如果沒有選中任何圖形則返回 null
+     */
+    public Shape getSelectedShape() {
+        return model.getSelectedShape();
+    }
+
+    /**
+     * 取得畫布顯示的圖表模型
+     * @return 圖表模型
+     */
+    public DiagramModel getModel() {
+        return model;
+    }
+
+    /**
+     * 顯示或隱藏效能資訊面板
+     * @param visible true 表示顯示
+     */
+    public void setHudVisible(boolean visible) {
+        hud.setVisible(visible);
+    }
+
+    // 檢查效能資訊面板是否顯示中
+    public boolean isHudVisible() {
+        return hud.isVisible();
+    }
+
+    /**
+     * 取得畫布的即時統計，可用 CanvasStats.register() 註冊到 JMX
+     * @return 統計資料
+     */
+    public CanvasStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 取得目前畫布上的圖表內容，用於存檔
+     * @return 頂層圖形（依繪製順序）與所有連線的複本
+     */
+    public Diagram getDiagram() {
+        frameScheduler.flush();
+        return model.getDiagram();
+    }
+
+    /**
+     * 以新的圖表取代畫布上的所有內容，用於讀檔
+     * @param diagram 新的圖表
+     */
+    public void setDiagram(Diagram diagram) {
+        frameScheduler.flush();
+        invalidateStaticLayer();
+        clearSelection();
+        isDragging = false;
+        selectionRect = null;
+        model.setDiagram(diagram); // 模型通知後整個畫面重繪
+    }
+}
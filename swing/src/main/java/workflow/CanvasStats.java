@@ -0,0 +1,149 @@
+package workflow;
+
+// 導入 JMX 相關類別
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * CanvasStats 類別：畫布的即時統計，提供給 JMX 查詢
+ * 繪製耗時記錄在固定大小的環狀緩衝區中，平均值與百分位只根據最近 WINDOW 次繪製計算；
+ * 記錄一次只是寫入陣列，只有透過 JMX 查詢時才複製並排序
+ * 記錄在事件分派執行緒上進行，查詢來自 JMX 執行緒，因此以 synchronized 保護（幾乎不會發生競爭）
+ */
+class CanvasStats implements CanvasStatsMXBean {
+    static final int WINDOW = 1024; // 計算平均值與百分位的繪製次數
+    private static final String OBJECT_NAME = "WorkflowEditor:type=CanvasStats";
+
+    private final long[] paintNanos = new long[WINDOW]; // 最近的繪製耗時（環狀緩衝區）
+    private final long[] latencyNanos = new long[WINDOW]; // 最近的輸入到繪製完成延遲（環狀緩衝區）
+    private long paintCount = 0; // 累計繪製次數
+    private long latencyCount = 0; // 累計有輸入的繪製次數
+    private long dragLayerFrames = 0; // 由靜態圖層快取組成的畫面數
+    private long dragLayerBuilds = 0; // 建立靜態圖層快取的次數
+    private long labelHitsBase = 0; // reset 時 LabelCache 的命中次數
+    private long labelMissesBase = 0; // reset 時 LabelCache 的未命中次數
+    private volatile int shapeCount = 0;
+    private volatile int linkCount = 0;
+
+    /**
+     * 記錄一次繪製
+     * @param nanos 繪製耗時（奈秒）
+     * @param fromDragLayer 是否由靜態圖層快取組成
+     * @param inputLatency 從輸入到繪製完成的延遲（奈秒），沒有輸入時為負數
+     */
+    synchronized void recordPaint(long nanos, boolean fromDragLayer, long inputLatency) {
+        paintNanos[(int) (paintCount++ % WINDOW)] = nanos;
+        if (fromDragLayer) {
+            dragLayerFrames++;
+        }
+        if (inputLatency >= 0) {
+            latencyNanos[(int) (latencyCount++ % WINDOW)] = inputLatency;
+        }
+    }
+
+    // 記錄一次靜態圖層快取的建立
+    synchronized void recordDragLayerBuild() {
+        dragLayerBuilds++;
+    }
+
+    /**
+     * 更新圖表大小
+     * @param shapes 頂層圖形數量
+     * @param links 連線數量
+     */
+    void setCounts(int shapes, int links) {
+        shapeCount = shapes;
+        linkCount = links;
+    }
+
+    /**
+     * 註冊到平台的 MBeanServer，JConsole 等工具連線後即可查看
+     * 已有同名的 MBean（例如同一個程式開了第二個畫布）時不註冊
+     */
+    void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.err.println("cannot register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    @Override
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    @Override
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    @Override
+    public synchronized long getPaintCount() {
+        return paintCount;
+    }
+
+    @Override
+    public synchronized double getAveragePaintMillis() {
+        return average(paintNanos, paintCount);
+    }
+
+    @Override
+    public synchronized double getP99PaintMillis() {
+        int n = (int) Math.min(paintCount, WINDOW);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(paintNanos, n);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(n * 0.99) - 1] / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageInputLatencyMillis() {
+        return average(latencyNanos, latencyCount);
+    }
+
+    @Override
+    public synchronized double getLabelCacheHitRate() {
+        long hits = LabelCache.getHits() - labelHitsBase;
+        long total = hits + LabelCache.getMisses() - labelMissesBase;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized double getDragLayerHitRate() {
+        long total = dragLayerFrames + dragLayerBuilds;
+        return total == 0 ? 0 : (double) dragLayerFrames / total;
+    }
+
+    @Override
+    public synchronized void reset() {
+        paintCount = 0;
+        latencyCount = 0;
+        dragLayerFrames = 0;
+        dragLayerBuilds = 0;
+        labelHitsBase = LabelCache.getHits();
+        labelMissesBase = LabelCache.getMisses();
+    }
+
+    // 環狀緩衝區中有效資料的平均值（毫秒）
+    private static double average(long[] ring, long count) {
+        int n = (int) Math.min(count, ring.length);
+        if (n == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += ring[i];
+        }
+        return sum / (n * 1e6);
+    }
+}
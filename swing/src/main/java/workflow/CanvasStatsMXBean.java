@@ -0,0 +1,34 @@
+package workflow;
+
+/**
+ * CanvasStatsMXBean 介面：透過 JMX（例如 JConsole、VisualVM）查看畫布的即時統計
+ * 註冊名稱為 WorkflowEditor:type=CanvasStats
+ */
+public interface CanvasStatsMXBean {
+    // 頂層圖形數量
+    int getShapeCount();
+
+    // 連線數量
+    int getLinkCount();
+
+    // 累計繪製次數
+    long getPaintCount();
+
+    // 最近繪製（最多 CanvasStats.WINDOW 次）的平均耗時（毫秒）
+    double getAveragePaintMillis();
+
+    // 最近繪製的第 99 百分位耗時（毫秒）
+    double getP99PaintMillis();
+
+    // 最近有輸入的繪製中，從輸入到畫面更新完成的平均延遲（毫秒）
+    double getAverageInputLatencyMillis();
+
+    // 標籤排版快取（LabelCache）的命中率，沒有查詢過時為 0
+    double getLabelCacheHitRate();
+
+    // 拖曳時由靜態圖層快取組成的畫面比例，沒有拖曳過時為 0
+    double getDragLayerHitRate();
+
+    // 清除繪製次數、耗時與快取統計
+    void reset();
+}
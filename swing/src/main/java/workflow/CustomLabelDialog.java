@@ -1,16 +1,22 @@
+package workflow;
+
 // 引入必要的 Swing 和 AWT 套件
 import javax.swing.*;
 import java.awt.*;
+import java.io.Serial;
 
 /**
  * 自定義標籤樣式對話框類別
  * 用於編輯圖形物件的標籤屬性
  */
-public class CustomLabelDialog extends JDialog { // public class - 宣告一個公開的類別 
+public final class CustomLabelDialog extends JDialog { // public class - 宣告一個公開的類別；final 表示不會被繼承，建構子中可以安全地呼叫自己的方法
     // CustomLabelDialog - 這個類別的名稱 
     // extends JDialog - 表示這個類別繼承自 JDialog（Java 視窗對話框的基礎類別）
     // 簡單來說，這行程式碼創建了一個自定義的對話框視窗類別，它具備了 Java 標準對話框（JDialog）的所有基本功能，並可以加入自己想要的額外功能。
 
+    @Serial
+    private static final long serialVersionUID = 1L; // JDialog 實作 Serializable，但對話框不會被序列化
+
     // 宣告對話框中使用的元件
     private JTextField nameField; // 標籤名稱輸入欄位
     private JComboBox<String> shapeComboBox; // 標籤形狀選擇下拉選單
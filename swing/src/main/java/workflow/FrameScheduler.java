@@ -0,0 +1,118 @@
+package workflow;
+
+// 導入 Swing 計時器
+import javax.swing.Timer;
+
+/**
+ * FrameScheduler 類別：依固定的畫面更新率套用輸入，將同一格畫面內的多個輸入事件合併成一次處理
+ * 高回報率的滑鼠每秒可能送出上千個拖曳事件，遠多於螢幕能顯示的畫面數
+ * 第一個事件立即處理以保持反應速度，之後在同一格畫面內到達的事件只標記為待處理，
+ * 由 javax.swing.Timer（在事件分派執行緒上執行）於下一格畫面統一處理一次；沒有待處理的輸入時計時器自動停止
+ */
+class FrameScheduler {
+    private static final int DEFAULT_FRAME_RATE = 60; // 預設每秒 60 格畫面
+
+    private final Runnable frameAction; // 每格畫面要執行的動作（套用累積的輸入）
+    private final Timer timer; // 畫面節奏計時器
+    private int frameRate; // 每秒畫面數
+    private boolean pending = false; // 是否有尚未套用的輸入
+    private long receivedEvents = 0; // 收到的輸入事件總數
+    private long appliedFrames = 0; // 實際套用輸入的次數
+
+    public FrameScheduler(Runnable frameAction) {
+        this(DEFAULT_FRAME_RATE, frameAction);
+    }
+
+    /**
+     * @param frameRate 每秒最多套用輸入的次數，必須大於 0
+     * @param frameAction 套用累積輸入的動作
+     */
+    public FrameScheduler(int frameRate, Runnable frameAction) {
+        checkFrameRate(frameRate);
+        this.frameAction = frameAction;
+        this.timer = new Timer(frameInterval(frameRate), _ -> onFrame());
+        this.timer.setCoalesce(true); // 計時器本身落後時也只補執行一次
+        this.frameRate = frameRate;
+    }
+
+    /**
+     * 通知有新的輸入事件
+     * 若目前沒有進行中的畫面節奏，立即套用並開始計時；否則等到下一格畫面再一起套用
+     */
+    public void request() {
+        receivedEvents++;
+        if (timer.isRunning()) {
+            pending = true;
+        } else {
+            apply();
+            timer.restart();
+        }
+    }
+
+    /**
+     * 立即套用尚未處理的輸入並停止計時，例如放開滑鼠時
+     */
+    public void flush() {
+        if (pending) {
+            apply();
+        }
+        timer.stop();
+    }
+
+    // 計時器觸發：有待處理的輸入就套用一次，沒有則停止計時
+    private void onFrame() {
+        if (pending) {
+            apply();
+        } else {
+            timer.stop();
+        }
+    }
+
+    // 套用累積的輸入
+    private void apply() {
+        pending = false;
+        appliedFrames++;
+        frameAction.run();
+    }
+
+    /**
+     * 設定每秒最多套用輸入的次數
+     * @param frameRate 每秒畫面數，必須大於 0
+     */
+    public void setFrameRate(int frameRate) {
+        checkFrameRate(frameRate);
+        this.frameRate = frameRate;
+        timer.setDelay(frameInterval(frameRate));
+    }
+
+    private static void checkFrameRate(int frameRate) {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("frameRate must be positive: " + frameRate);
+        }
+    }
+
+    // 取得每秒最多套用輸入的次數
+    public int getFrameRate() {
+        return frameRate;
+    }
+
+    // 取得收到的輸入事件總數
+    public long getReceivedEventCount() {
+        return receivedEvents;
+    }
+
+    // 取得實際套用輸入的次數
+    public long getAppliedFrameCount() {
+        return appliedFrames;
+    }
+
+    // 取得被合併（沒有單獨處理）的輸入事件數量
+    public long getCoalescedEventCount() {
+        return receivedEvents - appliedFrames;
+    }
+
+    // 由每秒畫面數換算計時器間隔（毫秒）
+    private static int frameInterval(int frameRate) {
+        return Math.max(1, 1000 / frameRate);
+    }
+}
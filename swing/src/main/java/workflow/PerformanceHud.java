@@ -0,0 +1,163 @@
+package workflow;
+
+// 導入必要的 Java AWT 和 Swing 類別
+import java.awt.*;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * PerformanceHud 類別：畫在畫布左上角的效能資訊面板，可隨時開關
+ * 顯示每秒畫面數、上一次繪製耗時、實際繪製與全部的圖形/連線數量、每次拖曳更新的連線數量，
+ * 以及事件分派執行緒的記憶體配置速率（由 ThreadMXBean 取樣，JVM 不支援時顯示 n/a）
+ * 每秒畫面數與配置速率每秒計算一次；顯示時以計時器每秒重繪面板區域，畫布靜止時數字也會更新
+ */
+class PerformanceHud {
+    private static final int X = 8; // 面板左上角（螢幕座標）
+    private static final int Y = 8;
+    private static final int WIDTH = 250;
+    private static final int LINE_HEIGHT = 15;
+    private static final int LINES = 5;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean(); // 不支援時為 null
+
+    private final JComponent owner; // 顯示面板的畫布
+    private final Timer timer; // 每秒取樣並重繪面板
+    private final Rectangle bounds = new Rectangle(X, Y, WIDTH, LINES * LINE_HEIGHT + 8);
+    private boolean visible = false;
+
+    // 上一次繪製的結果
+    private long paintNanos = 0;
+    private int shapesDrawn = 0;
+    private int shapeTotal = 0;
+    private int linksDrawn = 0;
+    private int linkTotal = 0;
+    private int linkUpdates = 0;
+
+    // 每秒取樣的結果
+    private int frames = 0; // 這一秒內的繪製次數
+    private double framesPerSecond = 0;
+    private double allocationRate = 0; // MB/s，無法取得時為 NaN
+    private long sampleNanos = 0; // 上次取樣的時間
+    private long sampleBytes = 0; // 上次取樣時事件分派執行緒已配置的位元組數
+
+    /**
+     * @param owner 顯示面板的畫布
+     */
+    public PerformanceHud(JComponent owner) {
+        this.owner = owner;
+        this.timer = new Timer(1000, _ -> sample());
+    }
+
+    /**
+     * 顯示或隱藏面板
+     * @param visible true 表示顯示
+     */
+    public void setVisible(boolean visible) {
+        if (this.visible == visible) {
+            return;
+        }
+        this.visible = visible;
+        if (visible) {
+            frames = 0;
+            framesPerSecond = 0;
+            allocationRate = 0;
+            sampleNanos = System.nanoTime();
+            sampleBytes = -1; // 第一次取樣在事件分派執行緒上進行，之後才能計算配置速率
+            timer.start();
+        } else {
+            timer.stop();
+        }
+        owner.repaint(bounds);
+    }
+
+    // 檢查面板是否顯示中
+    public boolean isVisible() {
+        return visible;
+    }
+
+    // 面板佔用的螢幕範圍
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * 記錄一次繪製完成；只為了更新面板本身而進行的重繪（clip 在面板範圍內）不計入
+     * @param clip 本次重繪的螢幕範圍
+     * @param paintNanos 繪製耗時（奈秒）
+     * @param shapesDrawn, shapeTotal 實際繪製與全部的頂層圖形數量
+     * @param linksDrawn, linkTotal 實際繪製與全部的連線數量
+     * @param linkUpdates 最近一次拖曳更新的連線數量
+     */
+    public void frameFinished(Rectangle clip, long paintNanos, int shapesDrawn, int shapeTotal,
+                              int linksDrawn, int linkTotal, int linkUpdates) {
+        if (bounds.contains(clip)) {
+            return;
+        }
+        frames++;
+        this.paintNanos = paintNanos;
+        this.shapesDrawn = shapesDrawn;
+        this.shapeTotal = shapeTotal;
+        this.linksDrawn = linksDrawn;
+        this.linkTotal = linkTotal;
+        this.linkUpdates = linkUpdates;
+    }
+
+    /**
+     * 在畫面最上層繪製面板
+     * 重繪範圍只蓋到面板的一部分時，另外要求重繪整個面板，避免新舊數字混在一起
+     * @param g 螢幕座標的繪圖環境
+     * @param clip 本次重繪的螢幕範圍
+     */
+    public void paint(Graphics g, Rectangle clip) {
+        if (!clip.intersects(bounds)) {
+            return;
+        }
+        if (!clip.contains(bounds)) {
+            owner.repaint(bounds);
+        }
+        g.setColor(BACKGROUND);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.GREEN);
+        g.setFont(FONT);
+        int x = bounds.x + 6;
+        int y = bounds.y + LINE_HEIGHT;
+        g.drawString(String.format(Locale.ROOT, "FPS      %6.1f", framesPerSecond), x, y);
+        g.drawString(String.format(Locale.ROOT, "paint    %6.2f ms", paintNanos / 1e6), x, y + LINE_HEIGHT);
+        g.drawString(String.format(Locale.ROOT, "shapes   %d / %d", shapesDrawn, shapeTotal), x, y + 2 * LINE_HEIGHT);
+        g.drawString(String.format(Locale.ROOT, "links    %d / %d  drag %d", linksDrawn, linkTotal, linkUpdates),
+                x, y + 3 * LINE_HEIGHT);
+        g.drawString(Double.isNaN(allocationRate) ? "alloc       n/a"
+                : String.format(Locale.ROOT, "alloc    %6.1f MB/s", allocationRate), x, y + 4 * LINE_HEIGHT);
+    }
+
+    // 每秒計算一次畫面數與配置速率（計時器在事件分派執行緒上執行，取樣的就是繪製所在的執行緒）
+    private void sample() {
+        long now = System.nanoTime();
+        // 配置量的量測可能在執行期間被停用，此時返回 -1
+        long bytes = THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+        double seconds = (now - sampleNanos) / 1e9;
+        framesPerSecond = frames / seconds;
+        if (bytes < 0) {
+            allocationRate = Double.NaN;
+        } else {
+            allocationRate = sampleBytes < 0 ? 0 : (bytes - sampleBytes) / seconds / (1024 * 1024);
+        }
+        frames = 0;
+        sampleNanos = now;
+        sampleBytes = bytes;
+        owner.repaint(bounds);
+    }
+
+    // 取得可以量測執行緒配置量的 ThreadMXBean；不是 HotSpot 相容的 JVM 或不支援時返回 null
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package workflow;
+
+// 導入必要的 Java AWT 類別
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+
+/**
+ * Viewport 類別：畫布的檢視區，負責世界座標（圖形所在的座標）與螢幕座標之間的轉換
+ * 螢幕座標 = 世界座標 × 縮放倍率 + 平移量
+ * 滑鼠事件先以反向轉換換算成世界座標再做點擊判斷，繪製時則把轉換套用到 Graphics2D
+ */
+class Viewport {
+    public static final double MIN_SCALE = 0.01; // 最小縮放倍率
+    public static final double MAX_SCALE = 8.0; // 最大縮放倍率
+
+    private double scale = 1.0; // 縮放倍率
+    private double translateX = 0; // X 方向平移量（螢幕像素）
+    private double translateY = 0; // Y 方向平移量（螢幕像素）
+
+    // 取得縮放倍率
+    public double getScale() {
+        return scale;
+    }
+
+    // 取得世界座標轉換到螢幕座標的仿射轉換
+    public AffineTransform getTransform() {
+        AffineTransform transform = AffineTransform.getTranslateInstance(translateX, translateY);
+        transform.scale(scale, scale);
+        return transform;
+    }
+
+    /**
+     * 以螢幕上的指定點為中心縮放，縮放前後該點對應的世界座標不變
+     * @param factor 縮放比例（大於 1 放大，小於 1 縮小）
+     * @param screenX, screenY 縮放中心的螢幕座標
+     */
+    public void zoomAt(double factor, int screenX, int screenY) {
+        double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        if (Math.abs(newScale - 1.0) < 1e-6) {
+            newScale = 1.0; // 回到原始大小時對齊，標籤才能使用預先繪製的影像
+        }
+        // 保持縮放中心的世界座標不變
+        double worldX = (screenX - translateX) / scale;
+        double worldY = (screenY - translateY) / scale;
+        scale = newScale;
+        translateX = screenX - worldX * scale;
+        translateY = screenY - worldY * scale;
+    }
+
+    /**
+     * 平移檢視區
+     * @param dx, dy 螢幕像素的位移量
+     */
+    public void pan(int dx, int dy) {
+        translateX += dx;
+        translateY += dy;
+    }
+
+    // 恢復為原始大小且沒有平移
+    public void reset() {
+        scale = 1.0;
+        translateX = 0;
+        translateY = 0;
+    }
+
+    /**
+     * 將螢幕座標轉換為世界座標
+     * @param screen 螢幕座標
+     * @return 世界座標
+     */
+    public Point toWorld(Point screen) {
+        return new Point((int) Math.floor((screen.x - translateX) / scale),
+                (int) Math.floor((screen.y - translateY) / scale));
+    }
+
+    /**
+     * 將螢幕上的矩形轉換為涵蓋它的世界座標矩形
+     * @param screen 螢幕矩形
+     * @return 世界座標矩形
+     */
+    public Rectangle toWorld(Rectangle screen) {
+        int x1 = (int) Math.floor((screen.x - translateX) / scale);
+        int y1 = (int) Math.floor((screen.y - translateY) / scale);
+        int x2 = (int) Math.ceil((screen.x + screen.width - translateX) / scale);
+        int y2 = (int) Math.ceil((screen.y + screen.height - translateY) / scale);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * 將世界座標矩形轉換為涵蓋它的螢幕矩形
+     * @param world 世界座標矩形
+     * @return 螢幕矩形
+     */
+    public Rectangle toScreen(Rectangle world) {
+        int x1 = (int) Math.floor(world.x * scale + translateX);
+        int y1 = (int) Math.floor(world.y * scale + translateY);
+        int x2 = (int) Math.ceil((world.x + world.width) * scale + translateX);
+        int y2 = (int) Math.ceil((world.y + world.height) * scale + translateY);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+}
@@ -1,11 +1,20 @@
+package workflow;
+
 //引入Java的圖形使用者介面(GUI)相關套件
 //javax.swing提供GUI元件
 //java.awt 提供了基本的視窗工具和圖形繪製功能
 import javax.swing.*; 
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
 
 public class WorkflowEditor { //類別宣告和成員變數
     private Canvas canvas; //畫布相關:用於繪製和顯示圖形的主要區域，這是自定義的Canvas類別，用來處理所有的繪圖操作
+    private DiagramJournal journal; //自動存檔:在背景記錄每次編輯，異常結束後可以還原
     //JButton是Java Swing函式庫中的一個重要元件，是一個可以點擊的按鈕元件
     //使用private來宣告這些變數有幾個重要的原因
     //資料隱藏
@@ -28,16 +37,36 @@ public class WorkflowEditor { //類別宣告和成員變數
     private JMenu fileEditMenu;//檔案編輯選單
     //JMenuItem:選單中的單一項目
     private JMenuItem labelMenuItem;//用於新增標籤的選單項目
+    private JMenuItem undoMenuItem;//復原上一個操作的選單項目
+    private JMenuItem redoMenuItem;//重做上一個復原操作的選單項目
+    private JMenuItem openMenuItem;//開啟圖表檔案的選單項目
+    private JMenuItem saveMenuItem;//儲存圖表檔案的選單項目
+    private JMenuItem importJsonMenuItem;//匯入 JSON 圖表的選單項目
+    private JMenuItem exportJsonMenuItem;//匯出 JSON 圖表的選單項目
+    private JMenuItem exportSvgMenuItem;//匯出 SVG 圖片的選單項目
+    private JMenu viewMenu;//檢視選單：縮放與平移
 
     //建構子宣告，這是WorkflowEditor類別的建構子，當創建此類別的物件時會執行
     public WorkflowEditor() {
         //初始化畫布，建立一個新的畫布物件，用於繪圖
         canvas = new Canvas();
+        canvas.getStats().register();//註冊 JMX 統計資料，可用 JConsole 查看繪製耗時與快取命中率
 
         //初始化菜單欄
         menuBar = new JMenuBar();//建立選單列
         fileEditMenu = new JMenu("File Edit");//建立名為「File Edit」的選單
         labelMenuItem = new JMenuItem("label");//建立名為「label」的選單項目
+        openMenuItem = new JMenuItem("Open...");//建立開啟檔案的選單項目
+        saveMenuItem = new JMenuItem("Save...");//建立儲存檔案的選單項目
+        openMenuItem.setAccelerator(KeyStroke.getKeyStroke("control O"));
+        saveMenuItem.setAccelerator(KeyStroke.getKeyStroke("control S"));
+        importJsonMenuItem = new JMenuItem("Import JSON...");//建立匯入 JSON 的選單項目
+        exportJsonMenuItem = new JMenuItem("Export JSON...");//建立匯出 JSON 的選單項目
+        exportSvgMenuItem = new JMenuItem("Export SVG...");//建立匯出 SVG 的選單項目
+        undoMenuItem = new JMenuItem("Undo");//建立復原的選單項目
+        redoMenuItem = new JMenuItem("Redo");//建立重做的選單項目
+        undoMenuItem.setAccelerator(KeyStroke.getKeyStroke("control Z"));
+        redoMenuItem.setAccelerator(KeyStroke.getKeyStroke("control Y"));
         
         //建立視窗
         JFrame frame = new JFrame("Workflow Editor");//建立標題為「Workflow Editor」的視窗
@@ -47,8 +76,39 @@ public class WorkflowEditor { //類別宣告和成員變數
 
         //加入畫布
         frame.add(canvas, BorderLayout.CENTER);//將畫布加入視窗中央
+        fileEditMenu.add(openMenuItem);//將開啟檔案選單項目加入選單
+        fileEditMenu.add(saveMenuItem);//將儲存檔案選單項目加入選單
+        fileEditMenu.add(importJsonMenuItem);//將匯入 JSON 選單項目加入選單
+        fileEditMenu.add(exportJsonMenuItem);//將匯出 JSON 選單項目加入選單
+        fileEditMenu.add(exportSvgMenuItem);//將匯出 SVG 選單項目加入選單
+        fileEditMenu.addSeparator();
+        fileEditMenu.add(undoMenuItem);//將復原選單項目加入選單
+        fileEditMenu.add(redoMenuItem);//將重做選單項目加入選單
+        fileEditMenu.addSeparator();
         fileEditMenu.add(labelMenuItem);//將選單項目加入選單
         menuBar.add(fileEditMenu);//將選單加入選單列
+
+        //檢視選單：放大、縮小、恢復原始大小（滑鼠滾輪縮放，中鍵或右鍵拖曳平移）
+        viewMenu = new JMenu("View");
+        JMenuItem zoomInMenuItem = new JMenuItem("Zoom In");
+        JMenuItem zoomOutMenuItem = new JMenuItem("Zoom Out");
+        JMenuItem resetViewMenuItem = new JMenuItem("Reset View");
+        zoomInMenuItem.setAccelerator(KeyStroke.getKeyStroke("control EQUALS"));
+        zoomOutMenuItem.setAccelerator(KeyStroke.getKeyStroke("control MINUS"));
+        resetViewMenuItem.setAccelerator(KeyStroke.getKeyStroke("control 0"));
+        zoomInMenuItem.addActionListener(_ -> canvas.zoomIn());
+        zoomOutMenuItem.addActionListener(_ -> canvas.zoomOut());
+        resetViewMenuItem.addActionListener(_ -> canvas.resetView());
+        viewMenu.add(zoomInMenuItem);
+        viewMenu.add(zoomOutMenuItem);
+        viewMenu.add(resetViewMenuItem);
+        viewMenu.addSeparator();
+        //效能資訊面板：每秒畫面數、繪製耗時、繪製數量與記憶體配置速率
+        JCheckBoxMenuItem hudMenuItem = new JCheckBoxMenuItem("Performance HUD");
+        hudMenuItem.setAccelerator(KeyStroke.getKeyStroke("F3"));
+        hudMenuItem.addActionListener(_ -> canvas.setHudVisible(hudMenuItem.isSelected()));
+        viewMenu.add(hudMenuItem);
+        menuBar.add(viewMenu);//將檢視選單加入選單列
         frame.setJMenuBar(menuBar);//將menuBar(選單列)安裝到frame(視窗)的頂部位置，顯示選單
 
         //按鈕工具列
@@ -83,17 +143,70 @@ public class WorkflowEditor { //類別宣告和成員變數
             //獲取當前被選中的圖形
             Shape selectedShape = canvas.getSelectedShape();
             if (selectedShape != null) {
+                //記錄修改前的標籤樣式，供復原使用
+                LabelStyle before = LabelStyle.of(selectedShape);
                 //如果有選中的圖形，創建並顯示自定義標籤對話框
                 CustomLabelDialog dialog = new CustomLabelDialog(frame, selectedShape);
                 dialog.setVisible(true);
                 
-                //標籤更新後重新繪製畫布，對話框關閉後重繪畫布
-                canvas.repaint();
+                //標籤更新後通知畫布，對話框關閉後更新索引、記錄復原紀錄並重繪畫布
+                canvas.labelChanged(selectedShape, before);
             } else {
                 // 如果沒有選中的圖形，顯示提示訊息
                 JOptionPane.showMessageDialog(frame, "請先選擇一個物件", "提示", JOptionPane.INFORMATION_MESSAGE);
             }
         });
+        //復原與重做
+        undoMenuItem.addActionListener(_ -> canvas.undo());
+        redoMenuItem.addActionListener(_ -> canvas.redo());
+        //開啟檔案：讀取二進位圖表檔並取代畫布內容
+        openMenuItem.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                try {
+                    canvas.setDiagram(DiagramFile.read(file.toPath()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(frame, "無法開啟檔案：" + ex.getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        //儲存檔案：將畫布內容寫成二進位圖表檔（在背景執行，存檔期間仍可繼續編輯）
+        saveMenuItem.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                writeInBackground(frame, file.toPath(), DiagramFile::write, "無法儲存檔案：");
+            }
+        });
+        //匯入 JSON：讀取其他工具產生的 JSON 圖表並取代畫布內容
+        importJsonMenuItem.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                try {
+                    canvas.setDiagram(DiagramJson.read(file.toPath()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(frame, "無法匯入檔案：" + ex.getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        //匯出 JSON：將畫布內容寫成 JSON 供其他工具使用
+        exportJsonMenuItem.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                writeInBackground(frame, file.toPath(), DiagramJson::write, "無法匯出檔案：");
+            }
+        });
+        //匯出 SVG：將畫布內容寫成向量圖片
+        exportSvgMenuItem.addActionListener(_ -> {
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                writeInBackground(frame, file.toPath(), SvgExporter::write, "無法匯出檔案：");
+            }
+        });
         //設定各個工具按鈕的點擊事件監聽器
         //矩形按鈕事件
         rectButton.addActionListener(_ -> {
@@ -167,10 +280,67 @@ public class WorkflowEditor { //類別宣告和成員變數
             System.out.println("Mode switched to: Composition");
         });
 
+        //自動存檔：還原上次結束（或異常結束）時的圖表，之後在背景持續記錄編輯
+        journal = new DiagramJournal(DiagramJournal.defaultDirectory());
+        // 背景寫入失敗時自動存檔會停止，回到事件分派執行緒告知使用者
+        journal.setFailureHandler(ex -> SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(frame,
+                "自動存檔已停止：" + ex.getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE)));
+        try {
+            Diagram recovered = journal.recover();
+            if (recovered != null) {
+                canvas.setDiagram(recovered);
+            }
+            journal.start(canvas.getModel(), DiagramJournal.DEFAULT_INTERVAL_MILLIS);
+        } catch (IOException ex) {
+            // 無法還原時保留原本的檔案，這次不自動存檔
+            JOptionPane.showMessageDialog(frame, "無法啟用自動存檔：" + ex.getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE);
+        }
+        //關閉視窗時寫出最後的改變與檢查點
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    journal.close();
+                } catch (IOException ex) {
+                    // 視窗還沒關閉，告知使用者最後的改變沒有寫出
+                    JOptionPane.showMessageDialog(frame, "自動存檔失敗：" + ex.getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
         // 顯示視窗
         frame.setVisible(true);
     }
 
+    // 將圖表寫到檔案的方法，例如 DiagramFile::write
+    private interface DiagramWriter {
+        void write(Diagram diagram, Path path) throws IOException;
+    }
+
+    // 在背景執行緒將目前的圖表快照寫成檔案
+    // 快照是不可變的，背景執行緒由它建立自己的圖形物件再寫出，大型圖表存檔時畫布也不會停頓
+    private void writeInBackground(JFrame frame, Path path, DiagramWriter writer, String errorMessage) {
+        DiagramSnapshot snapshot = canvas.getModel().getSnapshot();
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                writer.write(snapshot.toDiagram(), path);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(frame, errorMessage + ex.getCause().getMessage(), "錯誤", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
     // 更新按鈕顏色以視覺化顯示當前選擇的模式
     private void updateButtonColors() {
         // 更新矩形按鈕顏色